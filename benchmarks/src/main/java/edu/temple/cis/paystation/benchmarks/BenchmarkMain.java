@@ -0,0 +1,21 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of benchmarks.jar. Runs JMH with the given arguments and
+ * always adds the GC profiler, so allocations per operation are reported
+ * along with the scores. Example, writing results for comparison between
+ * releases:
+ *
+ *   java -jar target/benchmarks.jar -rf json -rff results.json
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        String[] withGc = Arrays.copyOf(args, args.length + 2);
+        withGc[args.length] = "-prof";
+        withGc[args.length + 1] = "gc";
+        org.openjdk.jmh.Main.main(withGc);
+    }
+}
@@ -0,0 +1,128 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.PayStation;
+import edu.temple.cis.paystation.PayStationConsole;
+import edu.temple.cis.paystation.PayStationImpl;
+import edu.temple.cis.paystation.TerminalInput;
+import edu.temple.cis.paystation.TerminalOutput;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Runs a scripted session through the console menu, headless, and scores
+ * commands per second; a command is a menu option or a coin. The script
+ * has SESSIONS customers, each inserting four coins (one invalid), reading
+ * the display and buying.
+ *
+ * console runs PayStationConsole on TerminalInput and TerminalOutput.
+ * scanner runs the same options the way the console loop used to: a
+ * Scanner reading the input and a PrintStream flushing every line, as
+ * System.out does. Output goes to a channel that drops it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsoleBenchmark {
+
+    static final int SESSIONS = 1000;
+    static final String SESSION = "1\n25\n10\n17\n25\n0\n2\n3\n";
+    // Options 1, 2 and 3, four coins, and the final 7
+    static final int COMMANDS = SESSIONS * 7 + 1;
+
+    private byte[] script;
+    private final WritableByteChannel sink = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < SESSIONS; i++) {
+            text.append(SESSION);
+        }
+        script = text.append("7\n").toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public long console() throws IOException {
+        PayStationImpl ps = new PayStationImpl();
+        TerminalOutput out = new TerminalOutput(sink);
+        TerminalInput in = new TerminalInput(
+                Channels.newChannel(new ByteArrayInputStream(script)), out);
+        PayStationConsole console = new PayStationConsole(ps, in, out);
+        console.run();
+        return console.getCommands() + ps.empty();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public long scanner() {
+        PayStation ps = new PayStationImpl();
+        PrintStream out = new PrintStream(Channels.newOutputStream(sink), true);
+        Scanner in = new Scanner(new ByteArrayInputStream(script));
+        long commands = 0;
+        int option;
+        do {
+            out.println("");
+            out.println("Choose an option:");
+            out.println("1) Deposit coins");
+            out.println("2) Display Time Bought");
+            out.println("3) Buy Ticket");
+            out.println("4) Cancel");
+            out.println("5) Empty (Admin)");
+            out.println("6) Change Rate Strategy (Admin)");
+            out.println("7) Exit");
+            option = in.nextInt();
+            commands++;
+            if (option == 1) {
+                out.println("Deposit coins here; valid coins are 5, 10, 25.");
+                int coin;
+                while ((coin = in.nextInt()) != 0) {
+                    commands++;
+                    if (ps.tryAddPayment(coin) == PayStation.COIN_ACCEPTED) {
+                        out.println("Payment added. Continue entering coins or press 0 to exit: ");
+                    } else {
+                        out.println("Invalid coin: " + coin + ". Continue entering coins or press 0 to exit: ");
+                    }
+                }
+                out.println("Coins sucessfully deposited.");
+            } else if (option == 2) {
+                out.println("You selected the display.");
+                out.println("Total time purchased: " + ps.readDisplay() + " minutes.");
+            } else if (option == 3) {
+                out.println("Buy Ticket selected.");
+                int minutes = ps.buy().value();
+                out.println("Parking receipt purchased.");
+                out.println("Receipt valid for " + minutes + " minutes.");
+            }
+        } while (option != 7);
+        return commands + ps.empty();
+    }
+}
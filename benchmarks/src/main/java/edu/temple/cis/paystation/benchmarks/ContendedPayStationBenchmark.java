@@ -0,0 +1,94 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.ConcurrentPayStation;
+import edu.temple.cis.paystation.IllegalCoinException;
+import edu.temple.cis.paystation.PayStation;
+import edu.temple.cis.paystation.Receipt;
+import edu.temple.cis.paystation.Town;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Multi threaded benchmarks of ConcurrentPayStation. With sharedLane all
+ * threads use lane 0 and contend for its lock; otherwise every thread has a
+ * lane of its own and only the vault is shared. The buyWhileEmptying group
+ * runs an admin emptying the station next to three buying threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ContendedPayStationBenchmark {
+
+    private static final int LANES = 64;
+    // Coins added before addPayment buys, so the amount never overflows
+    private static final int COINS_PER_BUY = 64;
+
+    @Param({"ALPHA_TOWN", "BETA_TOWN", "GAMMA_TOWN", "DELTA_TOWN", "OMEGA_TOWN"})
+    public Town town;
+
+    @Param({"true", "false"})
+    public boolean sharedLane;
+
+    private ConcurrentPayStation station;
+    private final AtomicInteger nextLane = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        station = new ConcurrentPayStation(LANES, town.rateStrategy(PayStationBenchmark.MONDAY));
+        nextLane.set(0);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadLane {
+
+        PayStation lane;
+        int coins;
+
+        @Setup(Level.Iteration)
+        public void setup(ContendedPayStationBenchmark bench) {
+            int id = bench.sharedLane ? 0 : bench.nextLane.getAndIncrement() % LANES;
+            lane = bench.station.lane(id);
+        }
+    }
+
+    @Benchmark
+    public int addPayment(ThreadLane t) throws IllegalCoinException {
+        t.lane.addPayment(5);
+        if (++t.coins == COINS_PER_BUY) {
+            t.coins = 0;
+            t.lane.buy();
+        }
+        return t.lane.readDisplay();
+    }
+
+    @Benchmark
+    public Receipt buy(ThreadLane t) throws IllegalCoinException {
+        t.lane.addPayment(25);
+        return t.lane.buy();
+    }
+
+    @Benchmark
+    @Group("buyWhileEmptying")
+    @GroupThreads(3)
+    public Receipt buyGroup(ThreadLane t) throws IllegalCoinException {
+        return buy(t);
+    }
+
+    @Benchmark
+    public Object cancel(ThreadLane t) throws IllegalCoinException {
+        t.lane.addPayment(25);
+        return t.lane.cancel();
+    }
+
+    @Benchmark
+    @Group("buyWhileEmptying")
+    @GroupThreads(1)
+    public long empty() {
+        return station.empty();
+    }
+}
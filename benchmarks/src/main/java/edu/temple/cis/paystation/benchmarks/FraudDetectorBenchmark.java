@@ -0,0 +1,67 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.FraudDetector;
+import edu.temple.cis.paystation.TransactionJournal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Feeds the fraud detector a fleet's stream of coin, rejected coin, buy
+ * and cancel events in time order, spread over the stations at random.
+ * The score is per event; its inverse is the event rate one thread can
+ * watch. The stream covers about an hour, so buckets close and windows
+ * slide as they would live.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FraudDetectorBenchmark {
+
+    static final int EVENTS = 1 << 20;
+    private static final int[] TYPES = {
+        TransactionJournal.COIN, TransactionJournal.COIN, TransactionJournal.COIN,
+        TransactionJournal.COIN, TransactionJournal.BUY, TransactionJournal.COIN,
+        TransactionJournal.CANCEL, TransactionJournal.REJECTED
+    };
+
+    @Param({"1000", "100000"})
+    public int stations;
+
+    private FraudDetector detector;
+    private long[] timestamps;
+    private int[] stationIds, types;
+    private long offset;
+    private long alerts;
+
+    @Setup
+    public void setup() {
+        detector = new FraudDetector(stations, (timestamp, stationId, kind, count) -> alerts++);
+        SplittableRandom random = new SplittableRandom(42);
+        timestamps = new long[EVENTS];
+        stationIds = new int[EVENTS];
+        types = new int[EVENTS];
+        long time = 1700000000000L;
+        for (int i = 0; i < EVENTS; i++) {
+            time += random.nextInt(7);
+            timestamps[i] = time;
+            stationIds[i] = random.nextInt(stations);
+            types[i] = TYPES[random.nextInt(TYPES.length)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long record() {
+        // Replays the stream later each time, so time keeps moving forward
+        long shift = offset;
+        for (int i = 0; i < EVENTS; i++) {
+            detector.record(timestamps[i] + shift, stationIds[i], types[i], 25, 0);
+        }
+        offset += timestamps[EVENTS - 1] - timestamps[0] + 1;
+        return detector.getEvents() + alerts;
+    }
+}
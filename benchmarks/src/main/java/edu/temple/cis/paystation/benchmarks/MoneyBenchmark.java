@@ -0,0 +1,63 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the ways of adding up the money of bought transactions: the
+ * int the station used to keep, which wraps around silently, and the long
+ * it keeps now, plain and with the overflow check of Math.addExact. Each
+ * invocation adds up TRANSACTIONS amounts; the score is per amount.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    static final int TRANSACTIONS = 1024;
+
+    private int[] amounts;
+    // Fields, as in the station, so every sum is stored
+    private int intTotal;
+    private long longTotal;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new int[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            amounts[i] = 5 * (1 + random.nextInt(80));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public int addInt() {
+        for (int amount : amounts) {
+            intTotal += amount;
+        }
+        return intTotal;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public long addLong() {
+        for (int amount : amounts) {
+            longTotal += amount;
+        }
+        return longTotal;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public long addLongExact() {
+        for (int amount : amounts) {
+            longTotal = Math.addExact(longTotal, amount);
+        }
+        return longTotal;
+    }
+}
@@ -0,0 +1,86 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.IllegalCoinException;
+import edu.temple.cis.paystation.PayStation;
+import edu.temple.cis.paystation.PayStationImpl;
+import edu.temple.cis.paystation.Receipt;
+import edu.temple.cis.paystation.Town;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single threaded benchmarks of the pay station operations, run for the
+ * rate strategy of every town.
+ *
+ * addPayment inserts a transaction of COINS_PER_TRANSACTION coins and buys
+ * it, so the amounts stay in the range real transactions have; the score is
+ * per coin. addPaymentAndRead does the same but reads the display after
+ * every coin, as a station showing each coin would. buy and cancel each
+ * complete a one coin transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayStationBenchmark {
+
+    static final int COINS_PER_TRANSACTION = 20;
+    // A running clock set to Monday noon, so every town sells weekday time
+    static final Clock MONDAY = Clock.offset(Clock.systemUTC(),
+            Duration.between(Instant.now(), Instant.parse("2023-11-13T12:00:00Z")));
+    private static final int[] COINS = {5, 10, 25, 25};
+
+    @Param({"ALPHA_TOWN", "BETA_TOWN", "GAMMA_TOWN", "DELTA_TOWN", "OMEGA_TOWN"})
+    public Town town;
+
+    private PayStation ps;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IllegalCoinException {
+        ps = new PayStationImpl(town.rateStrategy(MONDAY));
+        ps.addPayment(25);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COINS_PER_TRANSACTION)
+    public Receipt addPayment() throws IllegalCoinException {
+        for (int i = 0; i < COINS_PER_TRANSACTION; i++) {
+            ps.addPayment(COINS[i & 3]);
+        }
+        return ps.buy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COINS_PER_TRANSACTION)
+    public Receipt addPaymentAndRead(Blackhole bh) throws IllegalCoinException {
+        for (int i = 0; i < COINS_PER_TRANSACTION; i++) {
+            ps.addPayment(COINS[i & 3]);
+            bh.consume(ps.readDisplay());
+        }
+        return ps.buy();
+    }
+
+    @Benchmark
+    public int readDisplay() {
+        return ps.readDisplay();
+    }
+
+    @Benchmark
+    public Receipt buy() throws IllegalCoinException {
+        ps.addPayment(25);
+        return ps.buy();
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> cancel() throws IllegalCoinException {
+        ps.addPayment(25);
+        return ps.cancel();
+    }
+}
@@ -0,0 +1,162 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.IllegalCoinException;
+import edu.temple.cis.paystation.PayStation;
+import edu.temple.cis.paystation.PayStationCommand;
+import edu.temple.cis.paystation.PayStationImpl;
+import edu.temple.cis.paystation.PayStationUpdate;
+import edu.temple.cis.paystation.ReactivePayStation;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares inserting coins through addPayment, catching IllegalCoinException
+ * for every invalid coin, with tryAddPayment, which returns a status, and
+ * with sending them through ReactivePayStation, which reports invalid coins
+ * as values. rejectPercent is the share of
+ * invalid coins. Every 32nd command is a buy. Scores are per command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionStormBenchmark {
+
+    private static final int COMMANDS = 1024;
+    private static final int BUY_EVERY = 32;
+
+    @Param({"0", "50", "90"})
+    public int rejectPercent;
+
+    private int[] coins;
+    private PayStationCommand[] commands;
+    private PayStationImpl ps;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int[] valid = {5, 10, 25};
+        coins = new int[COMMANDS];
+        commands = new PayStationCommand[COMMANDS];
+        for (int i = 0; i < COMMANDS; i++) {
+            coins[i] = random.nextInt(100) < rejectPercent ? 17 : valid[random.nextInt(3)];
+            commands[i] = i % BUY_EVERY == BUY_EVERY - 1
+                    ? PayStationCommand.BUY : PayStationCommand.coin(coins[i]);
+        }
+        ps = new PayStationImpl();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void exceptionPath(Blackhole bh) {
+        for (int i = 0; i < COMMANDS; i++) {
+            if (i % BUY_EVERY == BUY_EVERY - 1) {
+                bh.consume(ps.buy());
+                continue;
+            }
+            try {
+                ps.addPayment(coins[i]);
+                bh.consume(ps.readDisplay());
+            } catch (IllegalCoinException e) {
+                bh.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void statusPath(Blackhole bh) {
+        for (int i = 0; i < COMMANDS; i++) {
+            if (i % BUY_EVERY == BUY_EVERY - 1) {
+                bh.consume(ps.buy());
+            } else if (ps.tryAddPayment(coins[i]) == PayStation.COIN_ACCEPTED) {
+                bh.consume(ps.readDisplay());
+            } else {
+                bh.consume(coins[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void reactivePath(Blackhole bh) {
+        ReactivePayStation station = new ReactivePayStation(ps);
+        station.subscribe(new Flow.Subscriber<PayStationUpdate>() {
+            private Flow.Subscription subscription;
+            private int received;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(256);
+            }
+
+            @Override
+            public void onNext(PayStationUpdate update) {
+                bh.consume(update);
+                if (++received % 256 == 0) {
+                    subscription.request(256);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        new ArrayPublisher(commands).subscribe(station);
+    }
+
+    /*
+     * Publishes an array of commands synchronously, as fast as requested.
+     */
+    static class ArrayPublisher implements Flow.Publisher<PayStationCommand> {
+
+        private final PayStationCommand[] items;
+
+        ArrayPublisher(PayStationCommand[] items) {
+            this.items = items;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super PayStationCommand> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private long demand;
+                private boolean emitting;
+
+                @Override
+                public void request(long n) {
+                    demand += n;
+                    // Requests made from onNext only add demand; the loop below sends it
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (demand > 0 && next < items.length) {
+                        demand--;
+                        subscriber.onNext(items[next++]);
+                    }
+                    emitting = false;
+                    if (next == items.length) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    next = items.length + 1;
+                }
+            });
+        }
+    }
+}
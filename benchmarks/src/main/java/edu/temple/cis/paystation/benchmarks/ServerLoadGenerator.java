@@ -0,0 +1,108 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.PayStationServer;
+import edu.temple.cis.paystation.Town;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback load generator for PayStationServer. Starts a server in this JVM
+ * (or uses one on the given port), opens one connection per terminal and has
+ * every terminal run transactions of three coins and a buy. Prints sessions
+ * hosted and transactions per second.
+ *
+ * Usage: ServerLoadGenerator [terminals] [seconds] [port]
+ */
+public class ServerLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int terminals = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        PayStationServer server = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new PayStationServer(0, Town.ALPHA_TOWN.rateStrategy());
+            server.start();
+            port = server.getPort();
+        }
+
+        AtomicLong transactions = new AtomicLong();
+        AtomicLong sessions = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(terminals);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] threads = new Thread[terminals];
+        for (int i = 0; i < terminals; i++) {
+            String terminalId = "t" + i;
+            threads[i] = new Thread(() -> runTerminal(port, terminalId, deadline,
+                    connected, sessions, go, transactions), terminalId);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        // Start the clock once every terminal has its session
+        connected.await();
+        long start = System.nanoTime();
+        deadline[0] = start + seconds * 1_000_000_000L;
+        go.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long done = transactions.get();
+        System.out.printf("terminals: %d, connected: %d%n", terminals, sessions.get());
+        if (server != null) {
+            System.out.printf("sessions:  %d%n", server.sessionCount());
+            server.close();
+        }
+        System.out.printf("transactions: %d in %.1f s = %.0f tx/s%n", done, elapsed, done / elapsed);
+    }
+
+    private static void runTerminal(int port, String terminalId, long[] deadline,
+            CountDownLatch connected, AtomicLong sessions, CountDownLatch go,
+            AtomicLong transactions) {
+        // The latch counts terminals that are done connecting, whether or
+        // not they got a session; sessions counts the ones that did
+        boolean counted = false;
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            s.setTcpNoDelay(true);
+            out.write("TERMINAL " + terminalId + "\n");
+            out.flush();
+            boolean session = in.readLine() != null;
+            counted = true;
+            connected.countDown();
+            if (!session) {
+                return;
+            }
+            sessions.incrementAndGet();
+            go.await();
+            while (System.nanoTime() < deadline[0]) {
+                out.write("ADD 25\nADD 10\nADD 5\nBUY\n");
+                out.flush();
+                for (int i = 0; i < 4; i++) {
+                    if (in.readLine() == null) {
+                        return;
+                    }
+                }
+                transactions.incrementAndGet();
+            }
+            out.write("QUIT\n");
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            System.err.println(terminalId + ": " + e.getMessage());
+        } finally {
+            if (!counted) {
+                connected.countDown();
+            }
+        }
+    }
+}
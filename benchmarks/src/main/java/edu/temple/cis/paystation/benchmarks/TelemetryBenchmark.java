@@ -0,0 +1,170 @@
+package edu.temple.cis.paystation.benchmarks;
+
+import edu.temple.cis.paystation.TelemetryReader;
+import edu.temple.cis.paystation.TelemetryWriter;
+import edu.temple.cis.paystation.StationSnapshot;
+import edu.temple.cis.paystation.TransactionJournal;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the telemetry frames of TelemetryWriter, plain and compressed,
+ * with Java serialization of a list of transaction objects. A frame holds
+ * the transactions of a busy hour of 16 stations. The encoded sizes are
+ * printed at setup. Scores are per transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryBenchmark {
+
+    private static final int TRANSACTIONS = 1000;
+
+    /*
+     * A transaction as the backend would get it through Java serialization.
+     */
+    static class Transaction implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final long timestamp;
+        final int stationId, type, cents, minutes;
+
+        Transaction(long timestamp, int stationId, int type, int cents, int minutes) {
+            this.timestamp = timestamp;
+            this.stationId = stationId;
+            this.type = type;
+            this.cents = cents;
+            this.minutes = minutes;
+        }
+    }
+
+    private ArrayList<Transaction> transactions;
+    private TelemetryWriter plain, compressed;
+    private final TelemetryReader reader = new TelemetryReader();
+    private final ByteBuffer frame = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer plainFrame, compressedFrame;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        transactions = new ArrayList<>();
+        long time = 1700000000000L;
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            time += random.nextInt(7200);
+            int type = i % 5 == 4 ? TransactionJournal.BUY : TransactionJournal.COIN;
+            int cents = type == TransactionJournal.BUY ? 25 * (1 + random.nextInt(8)) : 25;
+            transactions.add(new Transaction(time, random.nextInt(16), type, cents,
+                    type == TransactionJournal.BUY ? cents / 5 * 2 : 0));
+        }
+        plain = new TelemetryWriter(16 * 1024, false);
+        compressed = new TelemetryWriter(16 * 1024, true);
+        plainFrame = copy(encode(plain));
+        compressedFrame = copy(encode(compressed));
+        serialized = serialize();
+        System.out.printf("%nBytes per transaction: plain %.2f, compressed %.2f, serialized %.2f%n",
+                plainFrame.remaining() / (double) TRANSACTIONS,
+                compressedFrame.remaining() / (double) TRANSACTIONS,
+                serialized.length / (double) TRANSACTIONS);
+    }
+
+    private ByteBuffer encode(TelemetryWriter writer) {
+        for (Transaction t : transactions) {
+            writer.record(t.timestamp, t.stationId, t.type, t.cents, t.minutes);
+        }
+        frame.clear();
+        writer.finish(frame);
+        frame.flip();
+        return frame;
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer) {
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer).flip();
+        return copy;
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(transactions);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public ByteBuffer encodePlain() {
+        return encode(plain);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public ByteBuffer encodeCompressed() {
+        return encode(compressed);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public byte[] encodeSerialized() throws IOException {
+        return serialize();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public int decodePlain(Blackhole bh) throws IOException {
+        plainFrame.rewind();
+        return reader.read(plainFrame, handler(bh));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public int decodeCompressed(Blackhole bh) throws IOException {
+        compressedFrame.rewind();
+        return reader.read(compressedFrame, handler(bh));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    @SuppressWarnings("unchecked")
+    public List<Transaction> decodeSerialized() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (List<Transaction>) in.readObject();
+        }
+    }
+
+    private static TelemetryReader.FrameHandler handler(Blackhole bh) {
+        return new TelemetryReader.FrameHandler() {
+            @Override
+            public void record(long timestamp, int stationId, int type, int cents, int minutes) {
+                bh.consume(timestamp);
+                bh.consume(cents);
+            }
+
+            @Override
+            public void receipt(long issuedAt, int stationId, int minutes) {
+                bh.consume(minutes);
+            }
+
+            @Override
+            public void state(long timestamp, int display, StationSnapshot state) {
+                bh.consume(state);
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Works out which coins to give as change.
+ *
+ * Responsibilities:
+ *
+ * 1) Find the fewest coins from an inventory that pay an amount;
+ * 2) Pay as much as possible when the amount cannot be paid exactly;
+ * 3) Answer common amounts from a cache.
+ *
+ * Bills are never given as change. For amounts below the cache limit the
+ * fewest coins with no limit on their number are worked out once. When the
+ * inventory has those coins they are also the best answer from the
+ * inventory, so the common case takes a few array reads. Otherwise a bounded
+ * knapsack over the inventory finds the answer; large coin counts are split
+ * into powers of two, so the work grows with the logarithm of the inventory.
+ *
+ * The knapsack takes memory in proportion to the amount, so it is bounded:
+ * an amount the inventory cannot cover is paid with every coin, and the part
+ * of an amount above MAX_KNAPSACK_AMOUNT is first paid greedily with the
+ * largest coins. Only the rest is left to the knapsack, so the fewest coins
+ * are not guaranteed for such large amounts.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Arrays;
+
+public final class ChangeMaker {
+
+    // Amounts below this are answered from the cache by default
+    public static final int DEFAULT_CACHE_LIMIT = 1000;
+    // The largest amount the knapsack is run for: 655.36 dollars
+    public static final int MAX_KNAPSACK_AMOUNT = 1 << 16;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Denominations denominations;
+    // Slot of one coin in the fewest coins paying each amount; -1 if none do
+    private final byte[] cachedSlot;
+
+    public ChangeMaker(Denominations denominations) {
+        this(denominations, DEFAULT_CACHE_LIMIT);
+    }
+
+    /**
+     * @param denominations the coins to give change in
+     * @param cacheLimit amounts below this are answered from the cache
+     */
+    public ChangeMaker(Denominations denominations, int cacheLimit) {
+        this.denominations = denominations;
+        this.cachedSlot = new byte[cacheLimit];
+
+        int[] fewest = new int[cacheLimit];
+        Arrays.fill(fewest, UNREACHABLE);
+        Arrays.fill(cachedSlot, (byte) -1);
+        if (cacheLimit > 0) {
+            fewest[0] = 0;
+        }
+        for (int amount = 1; amount < cacheLimit; amount++) {
+            for (int slot = 0; slot < denominations.count(); slot++) {
+                int rest = amount - denominations.value(slot);
+                if (denominations.isBill(slot) || rest < 0 || fewest[rest] == UNREACHABLE) {
+                    continue;
+                }
+                if (fewest[rest] + 1 < fewest[amount]) {
+                    fewest[amount] = fewest[rest] + 1;
+                    cachedSlot[amount] = (byte) slot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Choose the coins to pay an amount from an inventory. If the amount
+     * cannot be paid exactly, the largest amount below it that can be paid
+     * is chosen. Of the ways to pay that amount, one with the fewest coins
+     * is chosen.
+     *
+     * @param amount the amount to pay in cent
+     * @param inventory the number of coins available per slot
+     * @return the number of coins to pay per slot
+     */
+    public int[] makeChange(int amount, int[] inventory) {
+        int[] coins = new int[denominations.count()];
+        if (amount <= 0) {
+            return coins;
+        }
+        if (amount < cachedSlot.length && cachedSlot[amount] >= 0) {
+            for (int rest = amount; rest > 0; rest -= denominations.value(cachedSlot[rest])) {
+                coins[cachedSlot[rest]]++;
+            }
+            if (covers(inventory, coins)) {
+                return coins;
+            }
+            Arrays.fill(coins, 0);
+        }
+
+        long available = 0;
+        for (int slot = 0; slot < coins.length; slot++) {
+            if (!denominations.isBill(slot)) {
+                available += (long) inventory[slot] * denominations.value(slot);
+            }
+        }
+        if (amount >= available) {
+            // Only every coin pays the most the inventory can
+            for (int slot = 0; slot < coins.length; slot++) {
+                coins[slot] = denominations.isBill(slot) ? 0 : inventory[slot];
+            }
+            return coins;
+        }
+        if (amount > MAX_KNAPSACK_AMOUNT) {
+            int[] left = inventory.clone();
+            int rest = payLargestFirst(amount, left, coins);
+            return knapsack(rest, left, coins);
+        }
+        return knapsack(amount, inventory, coins);
+    }
+
+    /*
+     * Pay the amount above MAX_KNAPSACK_AMOUNT with the largest coins,
+     * taking them out of the inventory. Returns the amount still to pay.
+     */
+    private int payLargestFirst(int amount, int[] inventory, int[] coins) {
+        int rest = amount;
+        boolean[] done = new boolean[coins.length];
+        while (rest > MAX_KNAPSACK_AMOUNT) {
+            int largest = -1;
+            for (int slot = 0; slot < coins.length; slot++) {
+                if (!done[slot] && !denominations.isBill(slot) && (largest < 0
+                        || denominations.value(slot) > denominations.value(largest))) {
+                    largest = slot;
+                }
+            }
+            if (largest < 0) {
+                break;
+            }
+            done[largest] = true;
+            int value = denominations.value(largest);
+            // Enough coins to get below the bound, but never beyond the amount
+            int wanted = (rest - MAX_KNAPSACK_AMOUNT + value - 1) / value;
+            int n = Math.min(inventory[largest], Math.min(wanted, rest / value));
+            coins[largest] += n;
+            inventory[largest] -= n;
+            rest -= n * value;
+        }
+        return rest;
+    }
+
+    private static boolean covers(int[] inventory, int[] coins) {
+        for (int slot = 0; slot < coins.length; slot++) {
+            if (coins[slot] > inventory[slot]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Bounded knapsack: the coins of each slot are split into lots of 1, 2,
+     * 4, ... coins, and each lot is either used or not.
+     */
+    private int[] knapsack(int amount, int[] inventory, int[] coins) {
+        int lots = 0;
+        int[] lotSlot = new int[8];
+        int[] lotSize = new int[8];
+        for (int slot = 0; slot < denominations.count(); slot++) {
+            if (denominations.isBill(slot)) {
+                continue;
+            }
+            // Coins beyond the amount can never be used
+            int left = Math.min(inventory[slot], amount / denominations.value(slot));
+            for (int size = 1; left > 0; size <<= 1) {
+                if (lots == lotSlot.length) {
+                    lotSlot = Arrays.copyOf(lotSlot, lots * 2);
+                    lotSize = Arrays.copyOf(lotSize, lots * 2);
+                }
+                lotSlot[lots] = slot;
+                lotSize[lots] = Math.min(size, left);
+                left -= lotSize[lots];
+                lots++;
+            }
+        }
+
+        int[] fewest = new int[amount + 1];
+        Arrays.fill(fewest, UNREACHABLE);
+        fewest[0] = 0;
+        // Bit a of used[lot] is set if the lot improved the fewest coins for a
+        long[][] used = new long[lots][(amount >> 6) + 1];
+        for (int lot = 0; lot < lots; lot++) {
+            int size = lotSize[lot];
+            int weight = size * denominations.value(lotSlot[lot]);
+            for (int a = amount; a >= weight; a--) {
+                int without = fewest[a - weight];
+                if (without != UNREACHABLE && without + size < fewest[a]) {
+                    fewest[a] = without + size;
+                    used[lot][a >> 6] |= 1L << a;
+                }
+            }
+        }
+
+        int paid = amount;
+        while (fewest[paid] == UNREACHABLE) {
+            paid--;
+        }
+        for (int lot = lots - 1; lot >= 0 && paid > 0; lot--) {
+            if ((used[lot][paid >> 6] & (1L << paid)) != 0) {
+                coins[lotSlot[lot]] += lotSize[lot];
+                paid -= lotSize[lot] * denominations.value(lotSlot[lot]);
+            }
+        }
+        return coins;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The coins and bills held by a pay station.
+ *
+ * Responsibilities:
+ *
+ * 1) Know the number of coins and bills per denomination;
+ * 2) Take in the coins of bought transactions and refills;
+ * 3) Pay out change from the coins it holds.
+ *
+ * The vault is an inventory, not an account: refills and change are not
+ * earnings, and emptying the station's earnings leaves the vault alone.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CoinVault {
+
+    private final Denominations denominations;
+    private final ChangeMaker changeMaker;
+    // Number of coins or bills held per slot
+    private final int[] counts;
+
+    public CoinVault(Denominations denominations) {
+        this(denominations, new ChangeMaker(denominations));
+    }
+
+    /**
+     * @param denominations the coins and bills the vault holds
+     * @param changeMaker works out the change; may be shared between vaults
+     * with the same denominations
+     */
+    public CoinVault(Denominations denominations, ChangeMaker changeMaker) {
+        this.denominations = denominations;
+        this.changeMaker = changeMaker;
+        this.counts = new int[denominations.count()];
+    }
+
+    /**
+     * Put coins of one value into the vault.
+     *
+     * @param coinValue the value of the coins in cent
+     * @param count the number of coins
+     * @throws IllegalArgumentException if the coin is not accepted or the
+     * count is negative
+     */
+    public void refill(int coinValue, int count) {
+        int slot = denominations.slotOf(coinValue);
+        if (slot < 0 || count < 0) {
+            throw new IllegalArgumentException("Bad refill: " + count + " x " + coinValue);
+        }
+        counts[slot] += count;
+    }
+
+    /**
+     * Put coins of several values into the vault at once.
+     *
+     * @param slotCounts the number of coins per slot of the denominations
+     * @throws IllegalArgumentException if there is a count for a slot that
+     * does not exist, or a count is negative
+     */
+    public void refill(int[] slotCounts) {
+        if (slotCounts.length > counts.length) {
+            throw new IllegalArgumentException("Bad refill: " + slotCounts.length + " slots");
+        }
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            if (slotCounts[slot] < 0) {
+                throw new IllegalArgumentException("Bad refill: " + slotCounts[slot]
+                        + " x " + denominations.value(slot));
+            }
+        }
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            counts[slot] += slotCounts[slot];
+        }
+    }
+
+    /**
+     * Take change out of the vault. If the vault cannot pay the amount
+     * exactly it pays the largest amount below it that it can.
+     *
+     * @param amount the change to pay in cent
+     * @return the coins paid, keyed by value; only values paid have a key
+     */
+    public Map<Integer, Integer> payOut(int amount) {
+        int[] coins = changeMaker.makeChange(amount, counts);
+        Map<Integer, Integer> paid = null;
+        for (int slot = 0; slot < coins.length; slot++) {
+            if (coins[slot] > 0) {
+                counts[slot] -= coins[slot];
+                if (paid == null) {
+                    paid = new HashMap<>();
+                }
+                paid.put(denominations.value(slot), coins[slot]);
+            }
+        }
+        return paid == null ? Collections.emptyMap() : Collections.unmodifiableMap(paid);
+    }
+
+    /**
+     * @param coinValue a coin value in cent
+     * @return the number of coins of the value held, 0 if it is not accepted
+     */
+    public int count(int coinValue) {
+        int slot = denominations.slotOf(coinValue);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * @return the value of everything held in cent
+     */
+    public long balance() {
+        long balance = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            balance += (long) counts[slot] * denominations.value(slot);
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * A pay station with several coin lanes that may be driven from different
+ * threads at the same time.
+ *
+ * Responsibilities:
+ *
+ * 1) Keep a separate transaction for every lane;
+ * 2) Collect the money of all lanes in one vault;
+ * 3) Empty the vault without losing money bought concurrently.
+ *
+ * Every lane is a PayStation of its own, locked only by the lane itself.
+ * The vault is split into one counter per lane, each on its own cache line,
+ * so buying on different lanes never contends. Emptying takes each counter
+ * with an atomic get-and-reset, so every buy is counted by exactly one call
+ * to empty().
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ConcurrentPayStation {
+
+    // Longs per lane in the vault; keeps every lane on its own cache line
+    private static final int STRIDE = 8;
+
+    private final Lane[] lanes;
+    private final AtomicLongArray vault;
+
+    /**
+     * @param laneCount the number of coin lanes
+     * @param rateStrategy the rate every lane uses
+     */
+    public ConcurrentPayStation(int laneCount, RateStrategy rateStrategy) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Need at least one lane: " + laneCount);
+        }
+        lanes = new Lane[laneCount];
+        vault = new AtomicLongArray(laneCount * STRIDE);
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, new PayStationImpl(rateStrategy));
+        }
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Get the pay station of a lane. Calling empty() on it empties the vault
+     * of the whole station.
+     *
+     * @param laneId the lane, from 0 to laneCount() - 1
+     * @return the lane's pay station
+     */
+    public PayStation lane(int laneId) {
+        return lanes[laneId];
+    }
+
+    /**
+     * Change the rate of all lanes. A transaction in progress on a lane is
+     * recalculated with the new rate.
+     *
+     * @param rateStrategy the new rate
+     */
+    public void setRateStrategy(RateStrategy rateStrategy) {
+        for (Lane lane : lanes) {
+            lane.setRateStrategy(rateStrategy);
+        }
+    }
+
+    /**
+     * Change the rate of all lanes from their next transaction on, without
+     * waiting for the lanes. Ongoing transactions keep their rate.
+     *
+     * @param rateStrategy the new rate
+     */
+    public void setNextRateStrategy(RateStrategy rateStrategy) {
+        for (Lane lane : lanes) {
+            lane.session.setNextRateStrategy(rateStrategy);
+        }
+    }
+
+    /**
+     * Reset money collected on all lanes.
+     *
+     * @return total amount of money collected since the last call
+     */
+    public long empty() {
+        long total = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            total = Math.addExact(total, vault.getAndSet(i * STRIDE, 0));
+        }
+        return total;
+    }
+
+    /*
+     * One coin lane. The transaction is kept in a PayStationImpl guarded by
+     * the lane's lock; money bought is moved from it into the lane's vault
+     * counter right away.
+     */
+    private class Lane implements PayStation {
+
+        private final int slot;
+        private final PayStationImpl session;
+
+        Lane(int laneId, PayStationImpl session) {
+            this.slot = laneId * STRIDE;
+            this.session = session;
+        }
+
+        @Override
+        public synchronized void addPayment(int coinValue) throws IllegalCoinException {
+            session.addPayment(coinValue);
+        }
+
+        @Override
+        public synchronized int tryAddPayment(int coinValue) {
+            return session.tryAddPayment(coinValue);
+        }
+
+        @Override
+        public synchronized void addPayments(int[] coins, int offset, int len)
+                throws IllegalCoinException {
+            session.addPayments(coins, offset, len);
+        }
+
+        @Override
+        public synchronized int readDisplay() {
+            return session.readDisplay();
+        }
+
+        @Override
+        public synchronized Receipt buy() {
+            Receipt r = session.buy();
+            vault.addAndGet(slot, session.empty());
+            return r;
+        }
+
+        @Override
+        public synchronized Map<Integer, Integer> cancel() {
+            return session.cancel();
+        }
+
+        @Override
+        public long empty() {
+            return ConcurrentPayStation.this.empty();
+        }
+
+        synchronized void setRateStrategy(RateStrategy rateStrategy) {
+            session.setRateStrategy(rateStrategy);
+        }
+    }
+}
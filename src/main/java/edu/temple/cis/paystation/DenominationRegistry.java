@@ -0,0 +1,66 @@
+/**
+ * The denominations of the currencies pay stations can be set up for.
+ *
+ * Responsibilities:
+ *
+ * 1) Look up the coins and bills of a currency by its ISO 4217 code;
+ * 2) Accept the registration of further currencies.
+ *
+ * Values are in the minor unit of the currency, as coin values are in cent
+ * elsewhere. The US dollar, euro and Danish krone are registered from the
+ * start.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class DenominationRegistry {
+
+    private static final Map<String, Denominations> CURRENCIES = new ConcurrentHashMap<>();
+
+    static {
+        // Nickel, dime, quarter; 1 and 5 dollar bills
+        register("USD", Denominations.US_COINS.withBills(100, 500));
+        // 10, 20, 50 cent, 1 and 2 euro coins; 5 and 10 euro bills
+        register("EUR", new Denominations(10, 20, 50, 100, 200).withBills(500, 1000));
+        // 50 ore, 1, 2, 5, 10 and 20 krone coins; 50 and 100 krone bills
+        register("DKK", new Denominations(50, 100, 200, 500, 1000, 2000).withBills(5000, 10000));
+    }
+
+    private DenominationRegistry() {
+    }
+
+    /**
+     * Register the denominations of a currency, replacing any registered
+     * before under the same code.
+     *
+     * @param currency the ISO 4217 code of the currency
+     * @param denominations the coins and bills of the currency
+     */
+    public static void register(String currency, Denominations denominations) {
+        CURRENCIES.put(currency, denominations);
+    }
+
+    /**
+     * @param currency the ISO 4217 code of a currency
+     * @return the coins and bills of the currency
+     * @throws IllegalArgumentException if the currency is not registered
+     */
+    public static Denominations lookup(String currency) {
+        Denominations denominations = CURRENCIES.get(currency);
+        if (denominations == null) {
+            throw new IllegalArgumentException("Unknown currency: " + currency);
+        }
+        return denominations;
+    }
+
+    /**
+     * @return the codes of the registered currencies in alphabetical order
+     */
+    public static Set<String> currencies() {
+        return new TreeSet<>(CURRENCIES.keySet());
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * The coin and bill values a pay station accepts.
+ *
+ * Responsibilities:
+ *
+ * 1) Map a coin value to its slot by a table lookup;
+ * 2) Know the value of each slot and whether it holds bills.
+ *
+ * The table is indexed by coin value, so validating a coin is one array
+ * access and a bounds check whatever the currency. Slots follow the order
+ * the values were given in, coins before bills. Bills are accepted like
+ * coins but are never given as change. Every value is a multiple of 5
+ * cent, so every amount paid is one a RateStrategy can calculate.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Arrays;
+
+public final class Denominations {
+
+    // The largest coin value a table may hold
+    public static final int MAX_VALUE = 10000;
+
+    // US nickels, dimes and quarters
+    public static final Denominations US_COINS = new Denominations(5, 10, 25);
+
+    private final int[] values;
+    // Slots from this one on hold bills
+    private final int firstBill;
+    // Slot of each coin value plus one; 0 for a value that is not accepted
+    private final byte[] slots;
+
+    /**
+     * @param values the accepted coin values in cent, one per slot
+     * @throws IllegalArgumentException if no values are given, or a value is
+     * repeated, not a positive multiple of 5 or above MAX_VALUE
+     */
+    public Denominations(int... values) {
+        this(values, values.length);
+    }
+
+    private Denominations(int[] values, int firstBill) {
+        if (values.length == 0 || values.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Bad number of coins: " + values.length);
+        }
+        int max = 0;
+        for (int value : values) {
+            // Rates take amounts in steps of 5 cent
+            if (value <= 0 || value > MAX_VALUE || value % 5 != 0) {
+                throw new IllegalArgumentException("Bad coin value: " + value);
+            }
+            max = Math.max(max, value);
+        }
+        this.values = values.clone();
+        this.firstBill = firstBill;
+        this.slots = new byte[max + 1];
+        for (int slot = 0; slot < values.length; slot++) {
+            if (slots[values[slot]] != 0) {
+                throw new IllegalArgumentException("Repeated coin value: " + values[slot]);
+            }
+            slots[values[slot]] = (byte) (slot + 1);
+        }
+    }
+
+    /**
+     * Create denominations that also accept the given bills.
+     *
+     * @param bills the accepted bill values in cent
+     * @return these coins together with the bills, in slots after the coins
+     * @throws IllegalArgumentException if a value is repeated, not a
+     * positive multiple of 5 or above MAX_VALUE
+     */
+    public Denominations withBills(int... bills) {
+        int[] all = Arrays.copyOf(values, values.length + bills.length);
+        System.arraycopy(bills, 0, all, values.length, bills.length);
+        return new Denominations(all, firstBill);
+    }
+
+    /**
+     * @param coinValue a coin value in cent
+     * @return the slot of the coin, or -1 if the coin is not accepted
+     */
+    public int slotOf(int coinValue) {
+        if (coinValue < 0 || coinValue >= slots.length) {
+            return -1;
+        }
+        return slots[coinValue] - 1;
+    }
+
+    /**
+     * @param coinValue a coin value in cent
+     * @return true if the coin is accepted
+     */
+    public boolean accepts(int coinValue) {
+        return slotOf(coinValue) >= 0;
+    }
+
+    /**
+     * @param slot a slot number from 0 to count() - 1
+     * @return the value in cent of the coins in the slot
+     */
+    public int value(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * @param slot a slot number from 0 to count() - 1
+     * @return true if the slot holds bills, which are not given as change
+     */
+    public boolean isBill(int slot) {
+        return slot >= firstBill;
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int count() {
+        return values.length;
+    }
+
+    /**
+     * @return a copy of the accepted coin values in slot order
+     */
+    public int[] values() {
+        return values.clone();
+    }
+
+    @Override
+    public String toString() {
+        if (firstBill == values.length) {
+            return "Denominations" + Arrays.toString(values);
+        }
+        return "Denominations" + Arrays.toString(Arrays.copyOf(values, firstBill))
+                + " bills " + Arrays.toString(Arrays.copyOfRange(values, firstBill, values.length));
+    }
+}
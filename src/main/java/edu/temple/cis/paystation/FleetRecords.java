@@ -0,0 +1,251 @@
+/**
+ * The sales of a fleet of pay stations, collected for aggregation.
+ *
+ * Responsibilities:
+ *
+ * 1) Hold one row per sale or station snapshot: time, station, town, money,
+ *    minutes and the coins paid;
+ * 2) Import the buys recorded in station journals.
+ *
+ * Rows are kept in growing primitive arrays, one per column, rather than as
+ * objects, so millions of rows take little memory and are cheap to scan.
+ * Every station and every hour is also numbered in the order it is first
+ * seen, so totals per station or hour can be kept in arrays as long as the
+ * number of stations and hours seen, however large or sparse the IDs and
+ * times are.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class FleetRecords {
+
+    private final int[] denominations;
+    private int size;
+    private long[] timestamps = new long[1024];
+    private int[] stationIds = new int[1024];
+    // The numbers of the station and hour of each row
+    private int[] stationIndexes = new int[1024];
+    private int[] hourIndexes = new int[1024];
+    private byte[] towns = new byte[1024];
+    private long[] cents = new long[1024];
+    private long[] minutes = new long[1024];
+    // denominations.length counts per row
+    private int[] coins;
+    private final Ids stations = new Ids();
+    private final Ids hours = new Ids();
+    private long minTimestamp = Long.MAX_VALUE;
+
+    /**
+     * @param denominations the coin values in cent whose counts are kept
+     */
+    public FleetRecords(int... denominations) {
+        this.denominations = denominations.clone();
+        coins = new int[1024 * denominations.length];
+    }
+
+    /**
+     * Add a sale or a snapshot of the sales of a station.
+     *
+     * @param timestamp the time in milliseconds since the epoch
+     * @param stationId the station, a non-negative ID
+     * @param town the town of the station
+     * @param cents the money collected
+     * @param minutes the parking time sold
+     * @param coinCounts the number of coins per denomination, or null if not
+     * known
+     */
+    public void add(long timestamp, int stationId, Town town, long cents, long minutes,
+            int[] coinCounts) {
+        if (stationId < 0) {
+            throw new IllegalArgumentException("Negative station ID: " + stationId);
+        }
+        if (size == timestamps.length) {
+            grow();
+        }
+        timestamps[size] = timestamp;
+        stationIds[size] = stationId;
+        stationIndexes[size] = stations.add(stationId);
+        hourIndexes[size] = hours.add(Math.floorDiv(timestamp, RevenueReport.MILLIS_PER_HOUR));
+        towns[size] = (byte) town.ordinal();
+        this.cents[size] = cents;
+        this.minutes[size] = minutes;
+        if (coinCounts != null) {
+            System.arraycopy(coinCounts, 0, coins, size * denominations.length,
+                    denominations.length);
+        }
+        size++;
+        minTimestamp = Math.min(minTimestamp, timestamp);
+    }
+
+    /**
+     * Add the buys recorded in a station's journal. Journals do not record
+     * coins, so these rows have no coin counts.
+     *
+     * @param journal the journal of the station
+     * @param town the town of the station
+     * @throws IOException if the journal cannot be read
+     */
+    public void addJournal(TransactionJournal journal, Town town) throws IOException {
+        journal.replay((timestamp, stationId, type, cents, minutes) -> {
+            if (type == TransactionJournal.BUY) {
+                add(timestamp, stationId, town, cents, minutes, null);
+            }
+        });
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        stationIds = Arrays.copyOf(stationIds, capacity);
+        stationIndexes = Arrays.copyOf(stationIndexes, capacity);
+        hourIndexes = Arrays.copyOf(hourIndexes, capacity);
+        towns = Arrays.copyOf(towns, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        coins = Arrays.copyOf(coins, capacity * denominations.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] denominations() {
+        return denominations.clone();
+    }
+
+    int denominationCount() {
+        return denominations.length;
+    }
+
+    /**
+     * @return the station IDs seen, numbered in the order first seen
+     */
+    Ids stations() {
+        return stations;
+    }
+
+    /**
+     * @return the hours seen, in hours since the epoch, numbered in the
+     * order first seen
+     */
+    Ids hours() {
+        return hours;
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    int stationId(int row) {
+        return stationIds[row];
+    }
+
+    int stationIndex(int row) {
+        return stationIndexes[row];
+    }
+
+    int hourIndex(int row) {
+        return hourIndexes[row];
+    }
+
+    int town(int row) {
+        return towns[row];
+    }
+
+    long cents(int row) {
+        return cents[row];
+    }
+
+    long minutes(int row) {
+        return minutes[row];
+    }
+
+    int coins(int row, int denomination) {
+        return coins[row * denominations.length + denomination];
+    }
+
+    /*
+     * Numbers distinct keys from 0 in the order they are added. An open
+     * addressing table maps a key to its number, avoiding a boxed map entry
+     * per row.
+     */
+    static final class Ids {
+
+        private long[] keys;
+        // The number of the key in the same place plus one; 0 is free
+        private int[] table;
+        private int size;
+
+        Ids() {
+            keys = new long[16];
+            table = new int[32];
+        }
+
+        private Ids(Ids other) {
+            keys = Arrays.copyOf(other.keys, other.size);
+            table = other.table.clone();
+            size = other.size;
+        }
+
+        /*
+         * The number of the key, added if new.
+         */
+        int add(long key) {
+            int i = find(key);
+            if (table[i] != 0) {
+                return table[i] - 1;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(16, size * 2));
+            }
+            keys[size] = key;
+            table[i] = ++size;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        /*
+         * The number of the key, or -1 if it was never added.
+         */
+        int indexOf(long key) {
+            return table[find(key)] - 1;
+        }
+
+        long key(int index) {
+            return keys[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        Ids copy() {
+            return new Ids(this);
+        }
+
+        private int find(long key) {
+            int mask = table.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int i = (int) (h >>> 32) & mask;
+            while (table[i] != 0 && keys[table[i] - 1] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            for (int n = 0; n < size; n++) {
+                table[find(keys[n])] = n + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,432 @@
+/**
+ * Drives seeded, synthetic traffic through a fleet of pay stations.
+ *
+ * Responsibilities:
+ *
+ * 1) Generate arrivals, coin mixes, invalid coins and cancels per station;
+ * 2) Run the stations in parallel with each town's rate strategy;
+ * 3) Check the invariants of the pay station on every transaction;
+ * 4) Report throughput and totals.
+ *
+ * Each station has its own random numbers, seeded from the seed and the
+ * station ID, and its own simulated clock, so a run gives the same totals
+ * whatever the number of threads. Stations are assigned to the towns in
+ * turn. The invariants checked are:
+ *
+ * - the money emptied equals the money inserted in bought transactions,
+ *   so cancelled and rejected coins never count toward revenue;
+ * - cancel returns exactly the coins inserted in the transaction;
+ * - a rejected coin does not change the display;
+ * - every coin is refused while parking is free, as in OmegaTown on
+ *   weekends;
+ * - a receipt shows the time displayed before buying.
+ */
+package edu.temple.cis.paystation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FleetSimulation {
+
+    // Violations kept with their message; the rest are only counted
+    private static final int MAX_MESSAGES = 20;
+    // Simulated time starts on Monday 2024-01-01 at midnight UTC
+    private static final long START = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private final int stations;
+    private final long transactionsPerStation;
+    private final long seed;
+    private int[] coinValues = {5, 10, 25};
+    private int[] coinWeights = {1, 1, 2};
+    private int maxCoins = 8;
+    private int cancelPercent = 10;
+    private int invalidPercent = 1;
+    private double arrivalsPerHour = 12;
+    private int emptyEvery = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param stations the number of stations in the fleet
+     * @param transactionsPerStation the number of transactions each station
+     * runs
+     * @param seed the seed of the random traffic
+     */
+    public FleetSimulation(int stations, long transactionsPerStation, long seed) {
+        this.stations = stations;
+        this.transactionsPerStation = transactionsPerStation;
+        this.seed = seed;
+    }
+
+    /**
+     * @param values the coin values inserted in cent
+     * @param weights the relative frequency of each coin value
+     */
+    public void setCoinMix(int[] values, int[] weights) {
+        if (values.length == 0 || values.length != weights.length) {
+            throw new IllegalArgumentException("Need one weight per coin value");
+        }
+        this.coinValues = values.clone();
+        this.coinWeights = weights.clone();
+    }
+
+    /**
+     * @param maxCoins the most coins inserted in a transaction; each
+     * transaction inserts from 1 to maxCoins coins
+     */
+    public void setMaxCoins(int maxCoins) {
+        this.maxCoins = maxCoins;
+    }
+
+    /**
+     * @param cancelPercent the share of transactions that are cancelled
+     */
+    public void setCancelPercent(int cancelPercent) {
+        this.cancelPercent = cancelPercent;
+    }
+
+    /**
+     * @param invalidPercent the share of coins that are not valid coins
+     */
+    public void setInvalidPercent(int invalidPercent) {
+        this.invalidPercent = invalidPercent;
+    }
+
+    /**
+     * @param arrivalsPerHour the mean number of transactions per station per
+     * simulated hour; the time between them is exponentially distributed
+     */
+    public void setArrivalsPerHour(double arrivalsPerHour) {
+        this.arrivalsPerHour = arrivalsPerHour;
+    }
+
+    /**
+     * @param emptyEvery the number of transactions between two empties
+     */
+    public void setEmptyEvery(int emptyEvery) {
+        this.emptyEvery = emptyEvery;
+    }
+
+    /**
+     * @param threads the number of threads running stations
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Run the fleet until every station has run its transactions.
+     *
+     * @return the totals of the fleet
+     * @throws InterruptedException if interrupted while waiting for the
+     * stations
+     */
+    public Result run() throws InterruptedException {
+        Denominations denominations = new Denominations(coinValues);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>(stations);
+            for (int id = 0; id < stations; id++) {
+                int stationId = id;
+                futures.add(pool.submit(() -> runStation(stationId, denominations)));
+            }
+            Result fleet = new Result();
+            for (Future<Result> future : futures) {
+                fleet.add(future.get());
+            }
+            fleet.elapsedNanos = System.nanoTime() - start;
+            return fleet;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Station failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Result runStation(int stationId, Denominations denominations) {
+        Result result = new Result();
+        SplittableRandom random = new SplittableRandom(seed * 1000003 + stationId);
+        SimulatedClock clock = new SimulatedClock(START);
+        Town town = Town.values()[stationId % Town.values().length];
+        RateStrategy rate = town.rateStrategy(clock);
+        PayStation ps = new PayStationImpl(rate, stationId, denominations);
+        int invalidCoin = 1;
+        while (denominations.accepts(invalidCoin)) {
+            invalidCoin++;
+        }
+
+        int[] cumulative = new int[coinWeights.length];
+        int totalWeight = 0;
+        for (int i = 0; i < coinWeights.length; i++) {
+            totalWeight += coinWeights[i];
+            cumulative[i] = totalWeight;
+        }
+        double meanGapMillis = 3600000 / arrivalsPerHour;
+        long boughtCents = 0;
+
+        for (long tx = 0; tx < transactionsPerStation; tx++) {
+            clock.advance((long) (-meanGapMillis * Math.log(1 - random.nextDouble())));
+
+            int coins = 1 + random.nextInt(maxCoins);
+            int inserted = 0;
+            for (int c = 0; c < coins; c++) {
+                if (random.nextInt(100) < invalidPercent) {
+                    int display = ps.readDisplay();
+                    if (ps.tryAddPayment(invalidCoin) != PayStation.COIN_INVALID
+                            || ps.readDisplay() != display) {
+                        result.violation("Station " + stationId + " accepted an invalid coin");
+                    }
+                    result.rejected++;
+                    continue;
+                }
+                int pick = random.nextInt(totalWeight);
+                int coin = 0;
+                while (cumulative[coin] <= pick) {
+                    coin++;
+                }
+                int status = ps.tryAddPayment(coinValues[coin]);
+                if (rate.isFree()) {
+                    if (status != PayStation.COIN_INVALID) {
+                        result.violation("Station " + stationId + " took a coin on a free day");
+                    }
+                    result.rejected++;
+                    continue;
+                }
+                if (status != PayStation.COIN_ACCEPTED) {
+                    result.violation("Station " + stationId + " rejected " + coinValues[coin]);
+                }
+                inserted += coinValues[coin];
+                result.coins++;
+            }
+
+            if (random.nextInt(100) < cancelPercent) {
+                int returned = 0;
+                for (Map.Entry<Integer, Integer> coin : ps.cancel().entrySet()) {
+                    returned += coin.getKey() * coin.getValue();
+                }
+                if (returned != inserted) {
+                    result.violation("Station " + stationId + " returned " + returned
+                            + " of " + inserted + " cents on cancel");
+                }
+                result.cancelled++;
+                result.cancelledCents += inserted;
+            } else {
+                int display = ps.readDisplay();
+                int minutes = ps.buy().value();
+                if (minutes != display) {
+                    result.violation("Station " + stationId + " displayed " + display
+                            + " min but printed " + minutes);
+                }
+                boughtCents += inserted;
+                result.bought++;
+                result.minutes += minutes;
+            }
+
+            if ((tx + 1) % emptyEvery == 0) {
+                result.revenue += ps.empty();
+            }
+        }
+        result.revenue += ps.empty();
+        if (result.revenue != boughtCents) {
+            result.violation("Station " + stationId + " emptied " + result.revenue
+                    + " cents but sold for " + boughtCents);
+        }
+        return result;
+    }
+
+    /**
+     * The totals of a simulation run.
+     */
+    public static class Result {
+
+        private long coins, rejected, bought, cancelled;
+        private long revenue, cancelledCents, minutes;
+        private long elapsedNanos;
+        private long violations;
+        private final List<String> messages = new ArrayList<>();
+
+        void violation(String message) {
+            if (messages.size() < MAX_MESSAGES) {
+                messages.add(message);
+            }
+            violations++;
+        }
+
+        void add(Result station) {
+            coins += station.coins;
+            rejected += station.rejected;
+            bought += station.bought;
+            cancelled += station.cancelled;
+            revenue += station.revenue;
+            cancelledCents += station.cancelledCents;
+            minutes += station.minutes;
+            violations += station.violations;
+            for (String message : station.messages) {
+                if (messages.size() < MAX_MESSAGES) {
+                    messages.add(message);
+                }
+            }
+        }
+
+        /**
+         * @return the number of valid coins inserted
+         */
+        public long getCoins() {
+            return coins;
+        }
+
+        /**
+         * @return the number of coins rejected: invalid ones, and valid
+         * ones while parking is free
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getBought() {
+            return bought;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return the money emptied from all stations in cent
+         */
+        public long getRevenue() {
+            return revenue;
+        }
+
+        /**
+         * @return the money returned on cancel in cent
+         */
+        public long getCancelledCents() {
+            return cancelledCents;
+        }
+
+        /**
+         * @return the parking time printed on all receipts
+         */
+        public long getMinutes() {
+            return minutes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the number of invariant violations found
+         */
+        public long getViolations() {
+            return violations;
+        }
+
+        /**
+         * @return the messages of the first violations found
+         */
+        public List<String> getMessages() {
+            return messages;
+        }
+
+        /**
+         * @return the coin events, valid or not, handled per second
+         */
+        public double coinsPerSecond() {
+            return (coins + rejected) * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%,d coins (%,d rejected) in %,d transactions: "
+                    + "%,d bought, %,d cancelled%n", coins + rejected, rejected,
+                    bought + cancelled, bought, cancelled));
+            report.append(String.format("revenue %,d cents, returned %,d cents, %,d min sold%n",
+                    revenue, cancelledCents, minutes));
+            report.append(String.format("%.3f s, %,.0f coin events/s, %,.0f transactions/s%n",
+                    elapsedNanos / 1e9, coinsPerSecond(),
+                    (bought + cancelled) * 1e9 / Math.max(1, elapsedNanos)));
+            report.append(String.format("%,d invariant violations%n", violations));
+            for (String message : messages) {
+                report.append("  ").append(message).append(System.lineSeparator());
+            }
+            return report.toString();
+        }
+    }
+
+    /*
+     * A clock moved forward by the simulation only. withZone() gives a view
+     * of the same simulated time in another zone.
+     */
+    private static class SimulatedClock extends Clock {
+
+        // The clock the simulation moves; this one unless this is a view
+        private final SimulatedClock time;
+        private final ZoneId zone;
+        private long millis;
+
+        SimulatedClock(long millis) {
+            this.time = this;
+            this.zone = ZoneOffset.UTC;
+            this.millis = millis;
+        }
+
+        private SimulatedClock(SimulatedClock time, ZoneId zone) {
+            this.time = time;
+            this.zone = zone;
+        }
+
+        void advance(long delta) {
+            time.millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return zone.equals(this.zone) ? this : new SimulatedClock(time, zone);
+        }
+
+        @Override
+        public long millis() {
+            return time.millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(time.millis);
+        }
+    }
+
+    /*
+     * Usage: FleetSimulation stations transactionsPerStation [seed]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: FleetSimulation stations transactionsPerStation [seed]");
+            System.exit(2);
+        }
+        FleetSimulation simulation = new FleetSimulation(Integer.parseInt(args[0]),
+                Long.parseLong(args[1]), args.length > 2 ? Long.parseLong(args[2]) : 42);
+        Result result = simulation.run();
+        System.out.print(result);
+        if (result.getViolations() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/**
+ * Watches the events of a fleet of pay stations for signs of fraud.
+ *
+ * Responsibilities:
+ *
+ * 1) Count coins, rejected coins, buys and cancels per station over a
+ *    sliding window;
+ * 2) Raise an alert when a station rejects many coins, or cancels more
+ *    than it sells, as when slugs are tried and taken back;
+ * 3) Raise an alert when a station stands out from the fleet.
+ *
+ * The detector is a RecordHandler: give it to PayStationImpl's
+ * setEventHandler(), or replay a journal or telemetry frame into it.
+ * Windows follow the timestamps of the events, so a replay raises the same
+ * alerts as the live stream did.
+ *
+ * Each station has a ring of buckets of bucketMillis; together they cover
+ * the window. The counts of the window are kept as running sums: a bucket
+ * is subtracted when it is reused, so an event costs a few array updates
+ * however long the window is. All state is kept in arrays sized at
+ * construction, about 24 bytes per bucket of each station; stations beyond
+ * maxStations are counted as untracked but not watched.
+ *
+ * For the outlier alert, every bucket a station closes is compared with
+ * the fleet. The suspicious events of the bucket (rejected coins and
+ * cancels) feed an exponentially weighted mean and variance of the fleet;
+ * a bucket more than outlierSigmas deviations above the mean alerts. Each
+ * kind of alert is raised at most once per window for a station.
+ *
+ * The detector is not thread safe. Stations used on several threads should
+ * each have a detector of their own, or hand their events to one thread.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Arrays;
+
+public class FraudDetector implements TransactionJournal.RecordHandler {
+
+    // Kinds of alerts
+    public static final int REJECTED_COINS = 1;
+    public static final int CANCEL_LOOP = 2;
+    public static final int OUTLIER = 3;
+
+    public static final long DEFAULT_BUCKET_MILLIS = 10000;
+    public static final int DEFAULT_BUCKETS = 30;
+
+    /**
+     * Receives the alerts of the detector.
+     */
+    public interface AlertHandler {
+
+        /**
+         * @param timestamp the time of the event that raised the alert
+         * @param stationId the station
+         * @param kind REJECTED_COINS, CANCEL_LOOP or OUTLIER
+         * @param count the suspicious events counted: in the window for
+         * REJECTED_COINS and CANCEL_LOOP, in the last bucket for OUTLIER
+         */
+        public void alert(long timestamp, int stationId, int kind, int count);
+    }
+
+    // Counters per bucket
+    private static final int COINS = 0;
+    private static final int REJECTS = 1;
+    private static final int BUYS = 2;
+    private static final int CANCELS = 3;
+    private static final int COUNTERS = 4;
+    private static final int ALERT_KINDS = 4;
+    // Weight of a new bucket in the fleet mean and variance
+    private static final double OUTLIER_ALPHA = 0.01;
+    // Buckets seen before the fleet statistics are trusted
+    private static final int OUTLIER_WARM_UP = 100;
+
+    private final AlertHandler alerts;
+    private final int maxStations;
+    private final long bucketMillis;
+    private final int buckets;
+
+    // Open addressing table from station ID to its index: the ID in the
+    // high half of an entry, the index plus one in the low half; 0 is free
+    private final long[] table;
+    private int stations;
+    private final int[] ids;
+
+    // Per station and bucket: the bucket number held and its counters
+    private final long[] bucketNumbers;
+    private final int[] counts;
+    // Per station: the counters of the window and the newest bucket seen
+    private final int[] windowCounts;
+    private final long[] newestBucket;
+    // Per station and kind: the bucket of the last alert
+    private final long[] lastAlert;
+
+    private int rejectThreshold = 20;
+    private int cancelThreshold = 5;
+    private double outlierSigmas = 6;
+    private int minOutlierCount = 5;
+    private double fleetMean, fleetVariance;
+    private long fleetBuckets;
+
+    private long events, untracked, alertCount;
+
+    /**
+     * A detector with windows of DEFAULT_BUCKETS buckets of
+     * DEFAULT_BUCKET_MILLIS, five minutes.
+     *
+     * @param maxStations the most stations watched
+     * @param alerts the handler of the alerts
+     */
+    public FraudDetector(int maxStations, AlertHandler alerts) {
+        this(maxStations, DEFAULT_BUCKET_MILLIS, DEFAULT_BUCKETS, alerts);
+    }
+
+    /**
+     * @param maxStations the most stations watched
+     * @param bucketMillis the time covered by a bucket
+     * @param buckets the buckets of a window
+     * @param alerts the handler of the alerts
+     */
+    public FraudDetector(int maxStations, long bucketMillis, int buckets, AlertHandler alerts) {
+        if (maxStations < 1 || bucketMillis < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Bad window: " + maxStations + " stations, "
+                    + buckets + " buckets of " + bucketMillis + " ms");
+        }
+        this.alerts = alerts;
+        this.maxStations = maxStations;
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        int tableSize = Integer.highestOneBit(maxStations * 2 - 1) << 1;
+        table = new long[tableSize];
+        ids = new int[maxStations];
+        bucketNumbers = new long[maxStations * buckets];
+        Arrays.fill(bucketNumbers, -1);
+        counts = new int[maxStations * buckets * COUNTERS];
+        windowCounts = new int[maxStations * COUNTERS];
+        newestBucket = new long[maxStations];
+        Arrays.fill(newestBucket, -1);
+        lastAlert = new long[maxStations * ALERT_KINDS];
+        // Far enough back for any first alert, without overflowing
+        Arrays.fill(lastAlert, Long.MIN_VALUE / 2);
+    }
+
+    /**
+     * @param rejectThreshold the rejected coins in a window that alert
+     */
+    public void setRejectThreshold(int rejectThreshold) {
+        this.rejectThreshold = rejectThreshold;
+    }
+
+    /**
+     * @param cancelThreshold the cancels in a window that alert, when they
+     * also outnumber the buys
+     */
+    public void setCancelThreshold(int cancelThreshold) {
+        this.cancelThreshold = cancelThreshold;
+    }
+
+    /**
+     * @param outlierSigmas the standard deviations above the fleet mean a
+     * bucket must be to alert
+     * @param minOutlierCount the suspicious events a bucket must have at
+     * least to alert
+     */
+    public void setOutlier(double outlierSigmas, int minOutlierCount) {
+        this.outlierSigmas = outlierSigmas;
+        this.minOutlierCount = minOutlierCount;
+    }
+
+    @Override
+    public void record(long timestamp, int stationId, int type, int cents, int minutes) {
+        int counter = counterOf(type);
+        if (counter < 0) {
+            return;
+        }
+        events++;
+        int station = indexOf(stationId);
+        if (station < 0) {
+            untracked++;
+            return;
+        }
+        long bucket = Math.floorDiv(timestamp, bucketMillis);
+        long newest = newestBucket[station];
+        if (bucket > newest) {
+            advance(timestamp, station, newest, bucket);
+        } else if (bucket <= newest - buckets) {
+            // Older than the window
+            return;
+        }
+        int slot = station * buckets + (int) Math.floorMod(bucket, (long) buckets);
+        if (bucketNumbers[slot] != bucket) {
+            // The slot holds a bucket that has left the window; reuse it
+            for (int c = 0; c < COUNTERS; c++) {
+                counts[slot * COUNTERS + c] = 0;
+            }
+            bucketNumbers[slot] = bucket;
+        }
+        counts[slot * COUNTERS + counter]++;
+        int window = ++windowCounts[station * COUNTERS + counter];
+
+        if (counter == REJECTS && window >= rejectThreshold) {
+            alert(timestamp, station, REJECTED_COINS, window);
+        } else if (counter == CANCELS && window >= cancelThreshold
+                && window > windowCounts[station * COUNTERS + BUYS]) {
+            alert(timestamp, station, CANCEL_LOOP, window);
+        }
+    }
+
+    /*
+     * Close the newest bucket of the station and slide the window up to
+     * bucket, taking the buckets that leave it out of the window counts.
+     * The slots of those buckets are cleared when they are reused. After a
+     * window or more without events the counts are simply reset, so a
+     * quiet station costs no more than a busy one.
+     */
+    private void advance(long timestamp, int station, long newest, long bucket) {
+        if (newest >= 0) {
+            int slot = station * buckets + (int) Math.floorMod(newest, (long) buckets);
+            closed(timestamp, station, counts[slot * COUNTERS + REJECTS]
+                    + counts[slot * COUNTERS + CANCELS]);
+        }
+        if (bucket - newest >= buckets) {
+            Arrays.fill(windowCounts, station * COUNTERS, (station + 1) * COUNTERS, 0);
+        } else {
+            for (long b = newest + 1; b <= bucket; b++) {
+                int slot = station * buckets + (int) Math.floorMod(b, (long) buckets);
+                if (bucketNumbers[slot] == b - buckets) {
+                    for (int c = 0; c < COUNTERS; c++) {
+                        windowCounts[station * COUNTERS + c] -= counts[slot * COUNTERS + c];
+                    }
+                }
+            }
+        }
+        newestBucket[station] = bucket;
+    }
+
+    /*
+     * Compare a closed bucket with the fleet, then add it to the fleet.
+     */
+    private void closed(long timestamp, int station, int suspicious) {
+        if (fleetBuckets >= OUTLIER_WARM_UP && suspicious >= minOutlierCount
+                && suspicious > fleetMean + outlierSigmas * Math.sqrt(fleetVariance)) {
+            alert(timestamp, station, OUTLIER, suspicious);
+        }
+        fleetBuckets++;
+        double alpha = fleetBuckets < OUTLIER_WARM_UP ? 1.0 / fleetBuckets : OUTLIER_ALPHA;
+        double delta = suspicious - fleetMean;
+        fleetMean += alpha * delta;
+        fleetVariance = (1 - alpha) * (fleetVariance + alpha * delta * delta);
+    }
+
+    private void alert(long timestamp, int station, int kind, int count) {
+        long bucket = newestBucket[station];
+        int slot = station * ALERT_KINDS + kind;
+        if (bucket - lastAlert[slot] < buckets) {
+            return;
+        }
+        lastAlert[slot] = bucket;
+        alertCount++;
+        alerts.alert(timestamp, ids[station], kind, count);
+    }
+
+    private static int counterOf(int type) {
+        switch (type) {
+            case TransactionJournal.COIN:
+                return COINS;
+            case TransactionJournal.REJECTED:
+                return REJECTS;
+            case TransactionJournal.BUY:
+                return BUYS;
+            case TransactionJournal.CANCEL:
+                return CANCELS;
+            default:
+                return -1;
+        }
+    }
+
+    /*
+     * The index of the station, added if there is room; -1 if not.
+     */
+    private int indexOf(int stationId) {
+        int i = find(stationId);
+        if (table[i] != 0) {
+            return (int) table[i] - 1;
+        }
+        if (stations == maxStations) {
+            return -1;
+        }
+        table[i] = (long) stationId << 32 | stations + 1;
+        ids[stations] = stationId;
+        return stations++;
+    }
+
+    /*
+     * The place of the station in the table, or the free place for it.
+     */
+    private int find(int stationId) {
+        int mask = table.length - 1;
+        int i = (stationId * 0x9E3779B9) >>> 7 & mask;
+        while (table[i] != 0 && (int) (table[i] >>> 32) != stationId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * @param stationId a station
+     * @param type COIN, REJECTED, BUY or CANCEL
+     * @return the events of the type in the current window of the station
+     */
+    public int windowCount(int stationId, int type) {
+        int station = (int) table[find(stationId)] - 1;
+        int counter = counterOf(type);
+        return station < 0 || counter < 0 ? 0 : windowCounts[station * COUNTERS + counter];
+    }
+
+    /**
+     * @return the coin, rejected coin, buy and cancel events seen
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * @return the events of stations beyond maxStations, not watched
+     */
+    public long getUntracked() {
+        return untracked;
+    }
+
+    public long getAlertCount() {
+        return alertCount;
+    }
+
+    public int getStationCount() {
+        return stations;
+    }
+}
@@ -13,7 +13,53 @@ package edu.temple.cis.paystation;
 
 public class IllegalCoinException extends Exception {
 
+    private static final long serialVersionUID = 1L;
+
+    // Position of the rejected coin in a batch, or -1 for a single coin
+    private final int index;
+    // The rejected coin of an exception whose message is built on demand
+    private final int coinValue;
+
     public IllegalCoinException(String e) {
+        this(e, -1);
+    }
+
+    public IllegalCoinException(String e, int index) {
         super(e);
+        this.index = index;
+        this.coinValue = 0;
+    }
+
+    private IllegalCoinException(int coinValue) {
+        super(null, null, false, false);
+        this.index = -1;
+        this.coinValue = coinValue;
+    }
+
+    /**
+     * Create the exception for a single rejected coin without filling in its
+     * stack trace, which is most of the cost of throwing it. The message is
+     * only built if it is asked for. Used where invalid coins are expected
+     * in bursts and the trace tells nothing new.
+     *
+     * @param coinValue the rejected coin value
+     * @return an exception with an empty stack trace
+     */
+    public static IllegalCoinException withoutStackTrace(int coinValue) {
+        return new IllegalCoinException(coinValue);
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return message == null ? "Invalid coin: " + coinValue : message;
+    }
+
+    /**
+     * @return the array index of the rejected coin when a batch of coins was
+     * inserted, or -1 when a single coin was inserted
+     */
+    public int getIndex() {
+        return index;
     }
 }
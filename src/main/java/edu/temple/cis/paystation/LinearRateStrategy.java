@@ -0,0 +1,25 @@
+/**
+ * Rate strategy where every 5 cents buys the same number of minutes.
+ * AlphaTown uses 2 minutes per 5 cents and DeltaTown 1 minute per 5 cents.
+ */
+package edu.temple.cis.paystation;
+
+public class LinearRateStrategy implements RateStrategy {
+
+    private final int minutesPer5Cents;
+
+    public LinearRateStrategy(int minutesPer5Cents) {
+        this.minutesPer5Cents = minutesPer5Cents;
+    }
+
+    @Override
+    public int calculateTime(int amount) {
+        // Computed in long; more minutes than an int holds are shown as the most it holds
+        return (int) Math.min((long) (amount / 5) * minutesPer5Cents, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isFree() {
+        return minutesPer5Cents == 0;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * HTTP endpoint serving the plain text metrics of a pay station at
+ * /metrics, for scraping by a monitoring system.
+ *
+ * The endpoint listens on the loopback interface unless given the address
+ * of another interface, so the metrics are not open to the network by
+ * default.
+ */
+package edu.temple.cis.paystation;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsEndpoint implements Closeable {
+
+    private final HttpServer server;
+
+    /**
+     * Serve the metrics on the loopback interface.
+     *
+     * @param metrics the metrics to serve
+     * @param port the port to listen on; 0 picks a free port
+     * @throws IOException if the port cannot be opened
+     */
+    public MetricsEndpoint(PayStationMetricsMBean metrics, int port) throws IOException {
+        this(metrics, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * @param metrics the metrics to serve
+     * @param host the address of the interface to listen on
+     * @param port the port to listen on; 0 picks a free port
+     * @throws IOException if the port cannot be opened
+     */
+    public MetricsEndpoint(PayStationMetricsMBean metrics, InetAddress host, int port)
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = metrics.getText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -23,6 +23,11 @@ import java.util.*;
 
 public interface PayStation {
 
+    // Status returned by tryAddPayment when the coin was inserted
+    public static final int COIN_ACCEPTED = 0;
+    // Status returned by tryAddPayment when the coin is not a valid coin
+    public static final int COIN_INVALID = 1;
+
     /**
      * Insert coin into the pay station and adjust state accordingly.
      *
@@ -32,6 +37,30 @@ public interface PayStation {
      */
     public void addPayment(int coinValue) throws IllegalCoinException;
 
+    /**
+     * Insert coin into the pay station like addPayment, but report an invalid
+     * coin by the returned status instead of an exception. The state is not
+     * changed by an invalid coin.
+     *
+     * @param coinValue is an integer value representing the coin in cent
+     * @return COIN_ACCEPTED if the coin was inserted, COIN_INVALID if
+     * coinValue is not a valid coin value, if the transaction cannot hold
+     * more money, or if the rate sells no time, as on free parking days
+     */
+    public int tryAddPayment(int coinValue);
+
+    /**
+     * Insert a batch of coins into the pay station. Either all coins are
+     * accepted or, if one of them is not valid, none are.
+     *
+     * @param coins the coin values in cent
+     * @param offset index of the first coin in coins
+     * @param len number of coins to insert
+     * @throws IllegalCoinException in case a coin is not a valid coin value;
+     * its index in coins is given by getIndex()
+     */
+    public void addPayments(int[] coins, int offset, int len) throws IllegalCoinException;
+
     /**
      * Read the machine's display. The display shows a numerical description of
      * the amount of parking time accumulated so far based on inserted payment.
@@ -65,7 +94,8 @@ public interface PayStation {
      * since the last call to 0.
      * 
      * @return total amount of money collected by the machine since last
-     * call.
+     * call, in cent. A long, as a busy station emptied rarely can collect
+     * more than an int holds.
      */
-    public int empty();
+    public long empty();
 }
@@ -0,0 +1,50 @@
+/**
+ * A command sent to a ReactivePayStation: insert a coin, buy or cancel.
+ */
+package edu.temple.cis.paystation;
+
+public final class PayStationCommand {
+
+    public enum Type { COIN, BUY, CANCEL }
+
+    public static final PayStationCommand BUY = new PayStationCommand(Type.BUY, 0);
+    public static final PayStationCommand CANCEL = new PayStationCommand(Type.CANCEL, 0);
+
+    // Commands for the coins the station accepts, so they need not be created
+    private static final PayStationCommand NICKEL = new PayStationCommand(Type.COIN, 5);
+    private static final PayStationCommand DIME = new PayStationCommand(Type.COIN, 10);
+    private static final PayStationCommand QUARTER = new PayStationCommand(Type.COIN, 25);
+
+    private final Type type;
+    private final int coinValue;
+
+    private PayStationCommand(Type type, int coinValue) {
+        this.type = type;
+        this.coinValue = coinValue;
+    }
+
+    /**
+     * @param coinValue the coin in cent
+     * @return the command to insert the coin
+     */
+    public static PayStationCommand coin(int coinValue) {
+        switch (coinValue) {
+            case 5:
+                return NICKEL;
+            case 10:
+                return DIME;
+            case 25:
+                return QUARTER;
+            default:
+                return new PayStationCommand(Type.COIN, coinValue);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getCoinValue() {
+        return coinValue;
+    }
+}
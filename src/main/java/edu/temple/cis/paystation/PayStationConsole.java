@@ -0,0 +1,181 @@
+/**
+ * The console menu of a pay station.
+ *
+ * Responsibilities:
+ *
+ * 1) Show the menu and read the choices of the customer;
+ * 2) Turn the choices into calls on a pay station;
+ * 3) Count the commands run.
+ *
+ * The console only knows the PayStation interface and a way to change the
+ * rate, so the same menu runs on a terminal, from a script in a test or
+ * behind a headless driver. Input and output go through TerminalInput and
+ * TerminalOutput: a screen is rendered into a buffer and written at once
+ * when the console waits for the next number.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public class PayStationConsole {
+
+    private final PayStation ps;
+    private final Consumer<RateStrategy> rateChanger;
+    private final TerminalInput in;
+    private final TerminalOutput out;
+    private long commands;
+
+    /**
+     * @param ps the station to run
+     * @param rateChanger sets the rate of the station when a town is chosen
+     * @param in the terminal to read the choices from
+     * @param out the terminal to show the menu on
+     */
+    public PayStationConsole(PayStation ps, Consumer<RateStrategy> rateChanger,
+            TerminalInput in, TerminalOutput out) {
+        this.ps = ps;
+        this.rateChanger = rateChanger;
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * A console on a PayStationImpl.
+     */
+    public PayStationConsole(PayStationImpl ps, TerminalInput in, TerminalOutput out) {
+        this(ps, ps::setRateStrategy, in, out);
+    }
+
+    /**
+     * Ask for the town the station is in and use its rate.
+     *
+     * @throws java.io.EOFException if the input ends
+     * @throws IOException if the terminal cannot be used
+     */
+    public void chooseTown() throws IOException {
+        out.println("Select the town which you reside, numerical input only:\n" + "1 - AlphaTown\n" + "2 - BetaTown\n" + "3 - GammaTown\n" + "4 - DeltaTown\n" + "5 - OmegaTown\n");
+        int townChoice = in.nextInt();
+        while ((townChoice < 1) || (townChoice > 5)) {
+            out.println("Invalid input; please reselect town. ");
+            townChoice = in.nextInt();
+        }
+        out.print("You have selected: ").print(townChoice).println();
+        changeTown(Town.values()[townChoice - 1]);
+        out.flush();
+    }
+
+    /**
+     * Run the menu until the user exits or gives a wrong admin password.
+     *
+     * @throws java.io.EOFException if the input ends first
+     * @throws IOException if the terminal cannot be used
+     */
+    public void run() throws IOException {
+        try {
+            menu();
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void menu() throws IOException {
+        int optionChoice;
+        do {
+            out.println("");
+            out.println("Choose an option:");
+            out.println("1) Deposit coins");
+            out.println("2) Display Time Bought");
+            out.println("3) Buy Ticket");
+            out.println("4) Cancel");
+            out.println("5) Empty (Admin)");
+            out.println("6) Change Rate Strategy (Admin)");
+            out.println("7) Exit");
+            optionChoice = in.nextInt();
+            while ((optionChoice < 1) || (optionChoice > 7)) {
+                out.println("Invalid input; please reselect valid option. ");
+                optionChoice = in.nextInt();
+            }
+            commands++;
+
+            if (optionChoice == 1) {
+                out.println("Deposit coins here; valid coins are 5, 10, 25.");
+                int coin;
+                while ((coin = in.nextInt()) != 0) {
+                    commands++;
+                    if (ps.tryAddPayment(coin) == PayStation.COIN_ACCEPTED) {
+                        out.println("Payment added. Continue entering coins or press 0 to exit: ");
+                    } else {
+                        out.print("Invalid coin: ").print(coin)
+                                .println(". Continue entering coins or press 0 to exit: ");
+                    }
+                }
+                out.println("Coins sucessfully deposited.");
+
+            } else if (optionChoice == 2) {
+                out.println("You selected the display.");
+                out.print("Total time purchased: ").print(ps.readDisplay()).println(" minutes.");
+
+            } else if (optionChoice == 3) {
+                out.println("Buy Ticket selected.");
+                Receipt receipt = ps.buy();
+                out.println("Parking receipt purchased.");
+                out.print("Receipt valid for ").print(receipt.value()).println(" minutes.");
+
+            } else if (optionChoice == 4) {
+                out.println("Cancel selected.\nHere are your coins back: " + ps.cancel());
+
+            } else if ((optionChoice == 5) || (optionChoice == 6)) {
+                out.print("Please enter admin password: ");
+                int passwordEntry = in.nextInt();
+                if (passwordEntry == 123) {
+                    out.println("Access granted");
+                } else {
+                    out.println("Invalid password, failsafe protection activating; paystation shutting off");
+                    return;
+                }
+                if (optionChoice == 5) {
+                    ps.empty();
+                    out.println("Pay Station has been emptied");
+                }
+                if (optionChoice == 6) {
+                    out.println("Change Rate Strategy (Admin) selected");
+                    out.println("Please choose one of the following options: ");
+                    out.println("1. Alphatown");
+                    out.println("2. Betatown");
+                    out.println("3. Gammatown");
+                    out.println("4. Deltatown");
+                    out.println("5. Omegatown");
+                    int rateChange = in.nextInt();
+                    if ((rateChange < 1) || (rateChange > 5)) {
+                        out.println("Invalid entry, try again.");
+                    } else {
+                        changeTown(Town.values()[rateChange - 1]);
+                    }
+                }
+            }
+        } while (optionChoice != 7);
+    }
+
+    /*
+     * Switch to the rate of the chosen town. OmegaTown does not sell time on
+     * weekends, so any coins already inserted are returned; the station
+     * refuses new coins for as long as the rate stays free.
+     */
+    private void changeTown(Town town) throws IOException {
+        RateStrategy rate = town.rateStrategy();
+        rateChanger.accept(rate);
+        if (rate.isFree()) {
+            out.println("Parking is free on weekends!");
+            out.println("Coins have been returned back.");
+            ps.cancel();
+        }
+    }
+
+    /**
+     * @return the menu options and coins handled so far
+     */
+    public long getCommands() {
+        return commands;
+    }
+}
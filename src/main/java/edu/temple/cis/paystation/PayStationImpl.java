@@ -1,6 +1,8 @@
 package edu.temple.cis.paystation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.Calendar;
 
 /**
  * Implementation of the pay station.
@@ -23,235 +25,540 @@ import java.util.Calendar;
  */
 
 public class PayStationImpl implements PayStation {
-    private int insertedSoFar, timeBought, totalMoney, townChoice;
-    private Map<Integer, Integer> coinMap;
+    // Events recorded between two snapshots of a station with a journal
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10000;
 
-    // Constructor initializes instance variables
+    // Money of the ongoing transaction; a coin that does not fit is refused
+    private int insertedSoFar, timeBought, townChoice;
+    // Money collected since the last empty, added with overflow checks
+    private long totalMoney;
+    // Set when timeBought must be recalculated before it is shown
+    private boolean displayDirty;
+    // Coin values accepted by the station, indexed by coin slot
+    private final Denominations denominations;
+    // Number of coins inserted per slot
+    private final int[] coinCounts;
+    // Coins kept by the station and given as change
+    private final CoinVault vault;
+    // The most a transaction costs; more money is given back as change
+    private int maxPayment = Integer.MAX_VALUE;
+    // The change given by the last buy
+    private Map<Integer, Integer> change = Collections.emptyMap();
+    // The rate for new transactions; may be changed from other threads
+    private volatile RateStrategy rateStrategy;
+    // The rate of the ongoing transaction, taken when its first coin arrives
+    private RateStrategy transactionRate;
+    // Printed on receipts; 0 when the station has no ID
+    private final int stationId;
+    // Records every event; null when the station keeps no journal
+    private final TransactionJournal journal;
+    private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+    private int eventsSinceSnapshot;
+    // Counts and times the operations; null when not monitored
+    private PayStationMetrics metrics;
+    // Keeps the receipts issued; null when they are not kept
+    private ReceiptStore receiptStore;
+    // Gets every event, rejected coins included; null when not watched
+    private TransactionJournal.RecordHandler events;
+
+    // Default to the AlphaTown rate of 2 minutes per 5 cents
     public PayStationImpl(){
-        insertedSoFar = timeBought = totalMoney = 0;
-        coinMap = new HashMap<>();
+        this(Town.ALPHA_TOWN.rateStrategy());
     }
-    
+
+    public PayStationImpl(RateStrategy rateStrategy){
+        this(rateStrategy, 0);
+    }
+
+    public PayStationImpl(RateStrategy rateStrategy, int stationId){
+        this(rateStrategy, stationId, Denominations.US_COINS);
+    }
+
+    // Constructor initializes instance variables
+    public PayStationImpl(RateStrategy rateStrategy, int stationId,
+            Denominations denominations){
+        insertedSoFar = timeBought = 0;
+        totalMoney = 0;
+        this.denominations = denominations;
+        coinCounts = new int[denominations.count()];
+        vault = new CoinVault(denominations);
+        this.rateStrategy = transactionRate = rateStrategy;
+        this.stationId = stationId;
+        this.journal = null;
+    }
+
+    /**
+     * Create a pay station that records its events in a journal. The state
+     * of the station, including an unfinished transaction and the money
+     * collected since the last empty, is rebuilt from the latest snapshot
+     * and the journal records after it. The station takes the journal's
+     * station ID.
+     *
+     * @param rateStrategy the rate used to calculate parking time
+     * @param journal the journal to replay and record into
+     * @throws IOException if the journal or snapshot cannot be read
+     */
+    public PayStationImpl(RateStrategy rateStrategy, TransactionJournal journal)
+            throws IOException {
+        this(rateStrategy, journal, Denominations.US_COINS);
+    }
+
+    /**
+     * Create a pay station that accepts the given coins and records its
+     * events in a journal.
+     *
+     * @param rateStrategy the rate used to calculate parking time
+     * @param journal the journal to replay and record into
+     * @param denominations the coins accepted by the station
+     * @throws IOException if the journal or snapshot cannot be read
+     */
+    public PayStationImpl(RateStrategy rateStrategy, TransactionJournal journal,
+            Denominations denominations) throws IOException {
+        insertedSoFar = timeBought = 0;
+        totalMoney = 0;
+        this.denominations = denominations;
+        coinCounts = new int[denominations.count()];
+        vault = new CoinVault(denominations);
+        this.rateStrategy = transactionRate = rateStrategy;
+        this.stationId = journal.getStationId();
+        this.journal = journal;
+
+        long from = 0;
+        StationSnapshot snapshot = StationSnapshot.read(snapshotFile());
+        if (snapshot != null) {
+            for (Map.Entry<Integer, Integer> coin : snapshot.getCoins().entrySet()) {
+                int slot = denominations.slotOf(coin.getKey());
+                if (slot < 0) {
+                    throw new IOException("Unknown coin in snapshot: " + coin.getKey());
+                }
+                coinCounts[slot] = coin.getValue();
+            }
+            insertedSoFar = snapshot.getInsertedSoFar();
+            totalMoney = snapshot.getTotalMoney();
+            from = snapshot.getPosition();
+        }
+        try {
+            journal.replay(from, (timestamp, id, type, cents, minutes) -> {
+                if (type == TransactionJournal.COIN && denominations.slotOf(cents) < 0) {
+                    throw new UncheckedIOException(
+                            new IOException("Unknown coin in journal: " + cents));
+                }
+                apply(type, cents);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        displayDirty = true;
+    }
+
     @Override
     public void addPayment(int coinValue)
             throws IllegalCoinException {
+        if (tryAddPayment(coinValue) != COIN_ACCEPTED) {
+            throw IllegalCoinException.withoutStackTrace(coinValue);
+        }
+    }
 
-        switch (coinValue) {
-            case 5:
-            case 10:
-            case 25:
-                break;
-            default:
-                throw new IllegalCoinException("Invalid coin: " + coinValue);
+    @Override
+    public int tryAddPayment(int coinValue) {
+        long start = metrics == null ? 0 : System.nanoTime();
+
+        int slot = denominations.slotOf(coinValue);
+        if (slot < 0 || insertedSoFar > Integer.MAX_VALUE - coinValue) {
+            if (metrics != null) {
+                metrics.illegalCoin();
+            }
+            event(TransactionJournal.REJECTED, coinValue, 0);
+            return COIN_INVALID;
+        }
+        if (parkingIsFree()) {
+            // A good coin that is not needed; not counted as illegal
+            event(TransactionJournal.REFUSED, coinValue, 0);
+            return COIN_INVALID;
         }
 
-        /*
-         * getOrDefault checks if a given key is present in a map
-         * @returns the value if it exists, or the 'defaultValue' if it does not
-         * add 1 to whatever the result of getOrDefault is and place that value in the map
-         */
-        coinMap.put(coinValue, coinMap.getOrDefault(coinValue, 0) + 1);
+        record(TransactionJournal.COIN, coinValue, 0);
+        if (insertedSoFar == 0) {
+            transactionRate = rateStrategy;
+        }
+        insert(slot, coinValue);
+        displayDirty = true;
+        snapshotIfDue();
 
-        insertedSoFar += coinValue;
-        timeBought = insertedSoFar / 5 * 2;
+        if (metrics != null) {
+            metrics.coinsInserted(coinValue, 1);
+            metrics.latency(PayStationMetrics.Operation.ADD_PAYMENT, start);
+        }
+        return COIN_ACCEPTED;
+    }
+
+    @Override
+    public void addPayments(int[] coins, int offset, int len)
+            throws IllegalCoinException {
+        if (offset < 0 || len < 0 || offset > coins.length - len) {
+            throw new IndexOutOfBoundsException("Bad batch: offset " + offset
+                    + ", length " + len + " of " + coins.length);
+        }
+
+        long start = metrics == null ? 0 : System.nanoTime();
+
+        // Check the batch first so nothing changes if a coin is rejected
+        boolean free = len > 0 && parkingIsFree();
+        int amount = 0;
+        for (int i = offset; i < offset + len; i++) {
+            String refusal = null;
+            int type = TransactionJournal.REJECTED;
+            if (!denominations.accepts(coins[i])) {
+                refusal = "Invalid coin: ";
+            } else if (free) {
+                refusal = "Parking is free, refused coin: ";
+                type = TransactionJournal.REFUSED;
+            } else if (insertedSoFar + (long) amount + coins[i] > Integer.MAX_VALUE) {
+                refusal = "Transaction full at coin: ";
+            }
+            if (refusal != null) {
+                if (metrics != null && type == TransactionJournal.REJECTED) {
+                    metrics.illegalCoin();
+                }
+                event(type, coins[i], 0);
+                throw new IllegalCoinException(refusal + coins[i] + " at index " + i, i);
+            }
+            amount += coins[i];
+        }
+
+        for (int i = offset; i < offset + len; i++) {
+            record(TransactionJournal.COIN, coins[i], 0);
+            coinCounts[denominations.slotOf(coins[i])]++;
+            if (metrics != null) {
+                metrics.coinsInserted(coins[i], 1);
+            }
+        }
+
+        if (insertedSoFar == 0) {
+            transactionRate = rateStrategy;
+        }
+        insertedSoFar = Math.addExact(insertedSoFar, amount);
+        displayDirty = true;
+        snapshotIfDue();
+
+        if (metrics != null) {
+            metrics.latency(PayStationMetrics.Operation.ADD_PAYMENT, start);
+        }
+    }
+
+    /*
+     * True if the rate the coin would be paid at sells no time now, as
+     * OmegaTown's rate on weekends. Checked for every coin, so a schedule
+     * that turns free in the middle of a transaction refuses the coins after
+     * the switch.
+     */
+    private boolean parkingIsFree() {
+        return (insertedSoFar == 0 ? rateStrategy : transactionRate).isFree();
     }
 
     @Override
     public int readDisplay() {
+        // Coins often arrive faster than the display is read
+        if (displayDirty) {
+            timeBought = transactionRate.calculateTime(charged());
+            displayDirty = false;
+        }
         return timeBought;
     }
 
     @Override
     public Receipt buy() {
-        Receipt r = new ReceiptImpl(timeBought);
-        totalMoney += insertedSoFar;
-        reset();
+        long start = metrics == null ? 0 : System.nanoTime();
+        if (insertedSoFar > 0 && transactionRate.isFree()) {
+            // The rate turned free during the transaction: no time is sold,
+            // so every coin is given back as change
+            Receipt r = ReceiptImpl.of(0, System.currentTimeMillis(), stationId);
+            change = coinsInserted();
+            record(TransactionJournal.CANCEL, insertedSoFar, 0);
+            apply(TransactionJournal.CANCEL, insertedSoFar);
+            snapshotIfDue();
+            if (metrics != null) {
+                metrics.cancelled();
+                metrics.latency(PayStationMetrics.Operation.BUY, start);
+            }
+            return r;
+        }
+        int minutes = readDisplay();
+        Receipt r = ReceiptImpl.of(minutes, System.currentTimeMillis(), stationId);
+        vault.refill(coinCounts);
+        change = insertedSoFar > maxPayment
+                ? vault.payOut(insertedSoFar - maxPayment) : Collections.<Integer, Integer>emptyMap();
+        int kept = insertedSoFar - valueOf(change);
+        if (receiptStore != null) {
+            receiptStore.add(r);
+        }
+        record(TransactionJournal.BUY, kept, minutes);
+        apply(TransactionJournal.BUY, kept);
+        snapshotIfDue();
+        if (metrics != null) {
+            metrics.bought();
+            metrics.latency(PayStationMetrics.Operation.BUY, start);
+        }
         return r;
     }
 
     @Override
     public Map<Integer, Integer> cancel() 
     {
-        Map<Integer, Integer> tempMap = coinMap;
-        coinMap = new HashMap<>();
-        reset();
-        return tempMap;
+        long start = metrics == null ? 0 : System.nanoTime();
+        Map<Integer, Integer> returned = coinsInserted();
+        if (insertedSoFar > 0) {
+            record(TransactionJournal.CANCEL, insertedSoFar, readDisplay());
+        }
+        apply(TransactionJournal.CANCEL, insertedSoFar);
+        snapshotIfDue();
+        if (metrics != null) {
+            metrics.cancelled();
+            metrics.latency(PayStationMetrics.Operation.CANCEL, start);
+        }
+        return returned;
     }
-    
-    private void reset() {
-        timeBought = insertedSoFar = 0;
-        coinMap.clear();
+
+    /**
+     * @return the change given by the last buy, keyed by coin value. Only
+     * coins given have a key. A buy after the rate turned free sells no time
+     * and gives every coin back here.
+     */
+    public Map<Integer, Integer> change() {
+        return change;
     }
-    
-    @Override
-    public int empty()
-    {
-        int temp = totalMoney;
-        totalMoney = 0;
-        return temp;
+
+    /**
+     * @return the coins kept by the station for change
+     */
+    public CoinVault getVault() {
+        return vault;
     }
 
-    public void changeRateLinear1() {
-        timeBought = insertedSoFar / 5 * 2;
+    /**
+     * Limit the cost of a transaction. Parking time is only sold for money
+     * up to the limit; on buy the rest is given back as change from the
+     * vault, or as much of it as the vault can pay.
+     *
+     * @param maxPayment the most a transaction costs in cent
+     */
+    public void setMaxPayment(int maxPayment) {
+        this.maxPayment = maxPayment;
+        displayDirty = true;
     }
 
-    public void changeRateLinear2() {
-        timeBought = insertedSoFar / 5;
+    // The part of the money inserted that parking time is sold for
+    private int charged() {
+        return Math.min(insertedSoFar, maxPayment);
     }
 
-    public void changeRateAlternating1(int dayOfWeek) {
-        if (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY) {
-            timeBought =  (insertedSoFar * 2) / 5;
-        } else {//if a weekday then progressive rate
-            if (insertedSoFar < 150) {
-                timeBought =  (insertedSoFar * 2) / 5;
-            }
-            else if ((insertedSoFar >= 150) && (insertedSoFar < 350)) {
-                double d = ((insertedSoFar - 150) * 0.3) + 60;
-                timeBought =  (int) d;
+    private static int valueOf(Map<Integer, Integer> coins) {
+        int value = 0;
+        for (Map.Entry<Integer, Integer> coin : coins.entrySet()) {
+            value += coin.getKey() * coin.getValue();
+        }
+        return value;
+    }
+
+    /*
+     * Build a read-only map of the coins inserted so far. Only slots with at
+     * least one coin get a key, as required by the cancel() contract.
+     */
+    private Map<Integer, Integer> coinsInserted() {
+        if (insertedSoFar == 0) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Integer> coins = new HashMap<>();
+        for (int slot = 0; slot < coinCounts.length; slot++) {
+            if (coinCounts[slot] > 0) {
+                coins.put(denominations.value(slot), coinCounts[slot]);
             }
-            else {
-                timeBought = (insertedSoFar - 350) / 5 + 120;
+        }
+        return Collections.unmodifiableMap(coins);
+    }
+    
+    /*
+     * Change the state of the station by one event. Live events and events
+     * replayed from the journal go through here alike.
+     */
+    private void apply(int type, int cents) {
+        switch (type) {
+            case TransactionJournal.COIN:
+                insert(denominations.slotOf(cents), cents);
+                break;
+            case TransactionJournal.BUY:
+                totalMoney = Math.addExact(totalMoney, cents);
+                reset();
+                break;
+            case TransactionJournal.CANCEL:
+                reset();
+                break;
+            case TransactionJournal.EMPTY:
+                totalMoney = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void insert(int slot, int coinValue) {
+        coinCounts[slot]++;
+        insertedSoFar = Math.addExact(insertedSoFar, coinValue);
+    }
+
+    private void record(int type, int cents, int minutes) {
+        if (journal != null) {
+            try {
+                journal.append(type, cents, minutes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write journal", e);
             }
+            eventsSinceSnapshot++;
         }
+        event(type, cents, minutes);
     }
 
-    public void changeRateAlternating2(int dayOfWeek) {
-        if (dayOfWeek >= Calendar.MONDAY && dayOfWeek <= Calendar.FRIDAY) {
-            timeBought = insertedSoFar / 5 * 2;
-        } else {
-            System.out.println("Parking is free on weekends!");
-            System.out.println("Coins have been returned back.");
-            cancel();
+    private void event(int type, int cents, int minutes) {
+        if (events != null) {
+            events.record(System.currentTimeMillis(), stationId, type, cents, minutes);
         }
     }
-    
-    public void changeRateProgressive() {
-        
-        if (insertedSoFar < 150) {
-            timeBought = (insertedSoFar * 2) / 5;
+
+    private void snapshotIfDue() {
+        if (journal != null && eventsSinceSnapshot >= snapshotInterval) {
+            snapshot();
         }
-        else if ((insertedSoFar >= 150) && (insertedSoFar < 350)) {
-            double d = ((insertedSoFar - 150) * 0.3) + 60;
-            timeBought = (int) d;
+    }
+
+    /**
+     * Save a snapshot of the station state next to its journal. The journal
+     * is forced to disk first, so the snapshot never gets ahead of it.
+     */
+    public void snapshot() {
+        if (journal == null) {
+            throw new IllegalStateException("Station has no journal");
         }
-        else {
-            timeBought = (insertedSoFar - 350) / 5 + 120;
+        journal.force();
+        try {
+            state().write(snapshotFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot", e);
         }
+        eventsSinceSnapshot = 0;
     }
 
+    /**
+     * @return the money inserted in the ongoing transaction and its coins,
+     * and the money collected since the last empty. The position is that of
+     * the journal, or 0 when the station keeps no journal.
+     */
+    public StationSnapshot state() {
+        return new StationSnapshot(journal == null ? 0 : journal.position(), stationId,
+                insertedSoFar, totalMoney, coinsInserted());
+    }
 
-    public static void main(String[] args) throws IllegalCoinException {
-        PayStationImpl ps = new PayStationImpl();
-        boolean complete = false;
-        Calendar calendar = Calendar.getInstance();
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+    /**
+     * @param snapshotInterval the number of events between two snapshots
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
 
-        // Town Choice Input
-        System.out.println("Select the town which you reside, numerical input only:\n" + "1 - AlphaTown\n" + "2 - BetaTown\n" + "3 - GammaTown\n" + "4 - DeltaTown\n" + "5 - OmegaTown\n");
-        Scanner console = new Scanner(System.in);
-        int townChoice = console.nextInt();
-        while ((townChoice < 1) || (townChoice > 5)) {
-            System.out.println("Invalid input; please reselect town. ");
-            townChoice = console.nextInt();
-        }
-        System.out.println("You have selected: " + townChoice);
-        if (townChoice == 2) {
-            ps.changeRateProgressive();
-        } else if (townChoice == 3) {
-            ps.changeRateAlternating1(dayOfWeek);
-        } else if (townChoice == 4) {
-            ps.changeRateLinear2();
-        } else {
-            ps.changeRateAlternating2(dayOfWeek);
+    private Path snapshotFile() {
+        return journal.getDirectory().resolve(StationSnapshot.FILE_NAME);
+    }
+
+    private void reset() {
+        timeBought = insertedSoFar = 0;
+        displayDirty = false;
+        Arrays.fill(coinCounts, 0);
+    }
+    
+    public int getStationId() {
+        return stationId;
+    }
+
+    /**
+     * Start or stop recording metrics of this station.
+     *
+     * @param metrics the metrics to record into, or null to stop recording
+     */
+    public void setMetrics(PayStationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Start or stop keeping the receipts issued by this station.
+     *
+     * @param receiptStore the store to add receipts to, or null to stop
+     */
+    public void setReceiptStore(ReceiptStore receiptStore) {
+        this.receiptStore = receiptStore;
+    }
+
+    /**
+     * Start or stop passing the events of this station to a handler, for
+     * instance a FraudDetector. The handler gets the records the journal
+     * would get, a REJECTED record for every invalid coin and a REFUSED
+     * record for every good coin refused while parking is free. It is called
+     * on the thread using the station.
+     *
+     * @param events the handler, or null to stop
+     */
+    public void setEventHandler(TransactionJournal.RecordHandler events) {
+        this.events = events;
+    }
+
+    @Override
+    public long empty()
+    {
+        long start = metrics == null ? 0 : System.nanoTime();
+        long temp = totalMoney;
+        // Replay ignores the amount of an EMPTY record; it is only reported
+        record(TransactionJournal.EMPTY, (int) Math.min(temp, Integer.MAX_VALUE), 0);
+        apply(TransactionJournal.EMPTY, 0);
+        snapshotIfDue();
+        if (metrics != null) {
+            metrics.emptied();
+            metrics.latency(PayStationMetrics.Operation.EMPTY, start);
         }
+        return temp;
+    }
 
-        // Menu Options
-        int optionChoice;
-        do {
-            System.out.println("");
-            System.out.println("Choose an option:");
-            System.out.println("1) Deposit coins");
-            System.out.println("2) Display Time Bought");
-            System.out.println("3) Buy Ticket");
-            System.out.println("4) Cancel");
-            System.out.println("5) Empty (Admin)");
-            System.out.println("6) Change Rate Strategy (Admin)");
-            System.out.println("7) Exit");
-            optionChoice = console.nextInt();
-            while ((optionChoice < 1) || (optionChoice > 7)) {
-                System.out.println("Invalid input; please reselect valid option. ");
-                optionChoice = console.nextInt();
-            }
+    /**
+     * Change the rate used to calculate parking time. The time shown for
+     * the ongoing transaction is recalculated with the new rate.
+     *
+     * @param rateStrategy the new rate
+     */
+    public void setRateStrategy(RateStrategy rateStrategy) {
+        this.rateStrategy = transactionRate = rateStrategy;
+        displayDirty = true;
+    }
 
-            if (optionChoice == 1) {
-                System.out.println("Deposit coins here; valid coins are 5, 10, 25.");
-                int coin;
-                boolean done = false;
-                while (!done) {
-                    coin = console.nextInt();
-                    if (coin == 0) {
-                        System.out.println("Coins sucessfully deposited.");
-                        break;
-                    } else {
-                        ps.addPayment(coin);
-                        System.out.println("Payment added. Continue entering coins or press 0 to exit: ");
-                    }
-                }
+    /**
+     * @return the rate for new transactions
+     */
+    public RateStrategy getRateStrategy() {
+        return rateStrategy;
+    }
 
-            } else if (optionChoice == 2) {
-                System.out.println("You selected the display.");
-                int display = ps.readDisplay();
-                System.out.println("Total time purchased: " + display + " minutes.");
-
-            } else if (optionChoice == 3) {
-                System.out.println("Buy Ticket selected.");
-                Receipt receipt = ps.buy();
-                System.out.println("Parking receipt purchased.");
-                System.out.println("Receipt valid for " + receipt.value() + " minutes.");
-
-            } else if (optionChoice == 4) {
-                System.out.println("Cancel selected.\nHere are your coins back: " + ps.cancel());
-
-            } else if ((optionChoice == 5) || (optionChoice == 6)) {
-                System.out.print("Please enter admin password: ");
-                int passwordEntry = console.nextInt();
-                if (passwordEntry == 123) {
-                    System.out.println("Access granted");
-                } else {
-                    System.out.println("Invalid password, failsafe protection activating; paystation shutting off");
-                    System.exit(0);
-                }
-                if (optionChoice == 5) {
-                    ps.empty();
-                    System.out.println("Pay Station has been emptied");
-                }
-                if (optionChoice == 6) {
-                    System.out.println("Change Rate Strategy (Admin) selected");
-                    System.out.println("Please choose one of the following options: ");
-                    System.out.println("1. Alphatown");
-                    System.out.println("2. Betatown");
-                    System.out.println("3. Gammatown");
-                    System.out.println("4. Deltatown");
-                    System.out.println("5. Omegatown");
-                    int rateChange = console.nextInt();
-                    if ((rateChange < 1) || (rateChange > 5)) {
-                        System.out.println("Invalid entry, try again.");
-                    } else if (rateChange == 1) {
-                        ps.changeRateLinear1();
-                    } else if (rateChange == 2) {
-                        ps.changeRateProgressive();
-                    } else if (rateChange == 3) {
-                        ps.changeRateAlternating1(dayOfWeek);
-                    } else if (rateChange == 4) {
-                        ps.changeRateLinear2();
-                    } else {
-                        ps.changeRateAlternating2(dayOfWeek);
-                    }
-                }
-            } else if (optionChoice == 7) {
-                System.exit(0);
-            }
-        } while (!complete);
+    /**
+     * Change the rate from the next transaction on. The ongoing transaction
+     * keeps the rate it started with. Unlike the other methods this one may
+     * be called from any thread, for instance by a RateConfigWatcher.
+     *
+     * @param rateStrategy the new rate
+     */
+    public void setNextRateStrategy(RateStrategy rateStrategy) {
+        this.rateStrategy = rateStrategy;
+    }
+
+    /*
+     * Usage: PayStationImpl [rate configuration file]. Kept for old
+     * scripts; PayStationLauncher is the main class of the jar.
+     */
+    public static void main(String[] args) throws IOException {
+        PayStationLauncher.main(args);
     }
 }
@@ -0,0 +1,185 @@
+/**
+ * Starts the pay station console of a kiosk.
+ *
+ * Responsibilities:
+ *
+ * 1) Set up the station from the command line, without asking;
+ * 2) Show the display as soon as possible after the JVM starts;
+ * 3) Warm up the station code while the first customer walks up;
+ * 4) Run the console menu on standard input and output.
+ *
+ * Startup avoids what makes a cold JVM slow: no reflection, no Scanner
+ * (its regular expressions load and compile a lot of classes) and no JMX.
+ * The console reads and writes the file descriptors through NIO channels
+ * rather than System.in and System.out, skipping their charset coders.
+ * Once the town's rate is set, from the command line or by the customer at
+ * the console, the display is shown. A scratch station then runs
+ * transactions with that rate on a background thread, so the code of the
+ * first coin is compiled before it arrives. Without reflection and with a
+ * fixed set of classes on the startup path, the launcher works with an
+ * AppCDS archive and in a GraalVM native image. To make and use an
+ * archive:
+ *
+ *   java -XX:ArchiveClassesAtExit=paystation.jsa -jar paystation.jar --town=AlphaTown --exit-when-ready
+ *   java -XX:SharedArchiveFile=paystation.jsa -jar paystation.jar --town=AlphaTown
+ *
+ * With --timing the time to the first readDisplay() is printed on standard
+ * error. It is counted from the paystation.startMillis system property,
+ * which a script can set to the time it started the JVM, or else from the
+ * start of main. When the town is chosen at the console the time includes
+ * the wait for the choice:
+ *
+ *   java -Dpaystation.startMillis=$(date +%s%3N) -jar paystation.jar --timing --exit-when-ready
+ */
+package edu.temple.cis.paystation;
+
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+public class PayStationLauncher {
+
+    // Transactions run by the warm-up; enough for the JIT to compile them
+    static final int WARM_UP_TRANSACTIONS = 20000;
+
+    private static final String USAGE = "Usage: PayStationLauncher [--town=NAME | --config=FILE"
+            + " | FILE] [--timing] [--exit-when-ready]";
+    private static final int[] WARM_UP_COINS = {5, 10, 25, 25};
+
+    private PayStationLauncher() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long launched = System.nanoTime();
+        Town town = null;
+        Path config = null;
+        boolean timing = false, exitWhenReady = false;
+        for (String arg : args) {
+            if (arg.startsWith("--town=")) {
+                town = townNamed(arg.substring("--town=".length()));
+            } else if (arg.startsWith("--config=")) {
+                config = Paths.get(arg.substring("--config=".length()));
+            } else if (arg.equals("--timing")) {
+                timing = true;
+            } else if (arg.equals("--exit-when-ready")) {
+                exitWhenReady = true;
+            } else if (!arg.startsWith("--") && config == null) {
+                config = Paths.get(arg);
+            } else {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        PayStationImpl ps;
+        if (config != null) {
+            RateConfigWatcher watcher = new RateConfigWatcher(config, Clock.systemDefaultZone());
+            ps = new PayStationImpl(watcher.current());
+            watcher.addListener(ps::setNextRateStrategy);
+        } else {
+            ps = new PayStationImpl((town == null ? Town.ALPHA_TOWN : town).rateStrategy());
+        }
+        if (exitWhenReady) {
+            firstDisplay(ps, timing, launched);
+            return;
+        }
+
+        TerminalOutput out = new TerminalOutput(
+                Channels.newChannel(new FileOutputStream(FileDescriptor.out)));
+        TerminalInput in = new TerminalInput(
+                new FileInputStream(FileDescriptor.in).getChannel(), out);
+        PayStationConsole console = new PayStationConsole(ps, in, out);
+        try {
+            if (config != null) {
+                out.println("Rate read from " + config);
+            } else if (town == null) {
+                console.chooseTown();
+            } else {
+                out.println("You have selected: " + town.displayName());
+            }
+            // Only now is the rate final, so time and warm up that one
+            int display = firstDisplay(ps, timing, launched);
+            startWarmUp(ps);
+            out.print("Total time purchased: ").print(display).println(" minutes.");
+            console.run();
+        } catch (EOFException e) {
+            // The input ended; leave like option 7
+        }
+        out.flush();
+        // Also stops the thread watching the rate configuration
+        System.exit(0);
+    }
+
+    /*
+     * Find a town by its display name, like AlphaTown, or its constant name.
+     */
+    private static Town townNamed(String name) {
+        for (Town town : Town.values()) {
+            if (town.displayName().equalsIgnoreCase(name) || town.name().equalsIgnoreCase(name)) {
+                return town;
+            }
+        }
+        throw new IllegalArgumentException("Unknown town: " + name);
+    }
+
+    /*
+     * Read the display for the first time, building the tables of the rate,
+     * and print how long it took since launch if asked to.
+     */
+    private static int firstDisplay(PayStationImpl ps, boolean timing, long launched) {
+        int display = ps.readDisplay();
+        if (timing) {
+            System.err.println("First display after " + millisSince(launched) + " ms");
+        }
+        return display;
+    }
+
+    /*
+     * Milliseconds since the time in the paystation.startMillis property,
+     * or since launched if it is not set.
+     */
+    private static long millisSince(long launched) {
+        String start = System.getProperty("paystation.startMillis");
+        if (start != null) {
+            return System.currentTimeMillis() - Long.parseLong(start);
+        }
+        return (System.nanoTime() - launched) / 1000000;
+    }
+
+    /*
+     * Run transactions on a scratch station with the rate of the real one,
+     * on a thread that does not keep the JVM alive.
+     */
+    static Thread startWarmUp(PayStationImpl ps) {
+        RateStrategy rate = ps.getRateStrategy();
+        Thread warmUp = new Thread(() -> warmUp(rate), "warm-up");
+        warmUp.setDaemon(true);
+        warmUp.setPriority(Thread.MIN_PRIORITY);
+        warmUp.start();
+        return warmUp;
+    }
+
+    static int warmUp(RateStrategy rate) {
+        PayStationImpl scratch = new PayStationImpl(rate);
+        int minutes = 0;
+        for (int i = 0; i < WARM_UP_TRANSACTIONS; i++) {
+            for (int coin = 0; coin <= (i & 7); coin++) {
+                scratch.tryAddPayment(WARM_UP_COINS[coin & 3]);
+                minutes += scratch.readDisplay();
+            }
+            if ((i & 15) == 15) {
+                scratch.cancel();
+            } else {
+                minutes += scratch.buy().value();
+            }
+        }
+        scratch.empty();
+        return minutes;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Counters and latencies of the operations of pay stations.
+ *
+ * Responsibilities:
+ *
+ * 1) Count coins by denomination, illegal coins, buys, cancels and empties;
+ * 2) Keep a latency histogram per operation;
+ * 3) Publish the metrics through JMX and as plain text.
+ *
+ * Recording only does atomic increments on preallocated arrays, so it
+ * never locks and never allocates. One instance may be shared by several
+ * stations.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class PayStationMetrics implements PayStationMetricsMBean {
+
+    /**
+     * The operations that are timed.
+     */
+    public enum Operation {
+        ADD_PAYMENT("addPayment"),
+        BUY("buy"),
+        CANCEL("cancel"),
+        EMPTY("empty");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final int ILLEGAL = 0, BUYS = 1, CANCELS = 2, EMPTIES = 3;
+
+    private final int[] denominations;
+    private final AtomicLongArray coins;
+    private final AtomicLongArray counters = new AtomicLongArray(4);
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * @param denominations the coin values in cent to count
+     */
+    public PayStationMetrics(int... denominations) {
+        this.denominations = denominations.clone();
+        coins = new AtomicLongArray(denominations.length);
+        latencies = new LatencyHistogram[Operation.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record accepted coins.
+     *
+     * @param coinValue the coin in cent
+     * @param count the number of such coins
+     */
+    public void coinsInserted(int coinValue, int count) {
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] == coinValue) {
+                coins.addAndGet(i, count);
+                return;
+            }
+        }
+    }
+
+    public void illegalCoin() {
+        counters.incrementAndGet(ILLEGAL);
+    }
+
+    public void bought() {
+        counters.incrementAndGet(BUYS);
+    }
+
+    public void cancelled() {
+        counters.incrementAndGet(CANCELS);
+    }
+
+    public void emptied() {
+        counters.incrementAndGet(EMPTIES);
+    }
+
+    /**
+     * Record the latency of an operation.
+     *
+     * @param operation the operation
+     * @param startNanos System.nanoTime() when the operation started
+     */
+    public void latency(Operation operation, long startNanos) {
+        latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram histogram(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    @Override
+    public long getCoinsInserted() {
+        long total = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            total += coins.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public long getIllegalCoins() {
+        return counters.get(ILLEGAL);
+    }
+
+    @Override
+    public long getBuys() {
+        return counters.get(BUYS);
+    }
+
+    @Override
+    public long getCancels() {
+        return counters.get(CANCELS);
+    }
+
+    @Override
+    public long getEmpties() {
+        return counters.get(EMPTIES);
+    }
+
+    @Override
+    public long coins(int coinValue) {
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] == coinValue) {
+                return coins.get(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long latencyNanos(String operation, double percentile) {
+        for (Operation op : Operation.values()) {
+            if (op.label().equals(operation)) {
+                return histogram(op).percentile(percentile);
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + operation);
+    }
+
+    @Override
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < denominations.length; i++) {
+            text.append("paystation_coins_total{coin=\"").append(denominations[i])
+                    .append("\"} ").append(coins.get(i)).append('\n');
+        }
+        text.append("paystation_illegal_coins_total ").append(getIllegalCoins()).append('\n');
+        text.append("paystation_buys_total ").append(getBuys()).append('\n');
+        text.append("paystation_cancels_total ").append(getCancels()).append('\n');
+        text.append("paystation_empties_total ").append(getEmpties()).append('\n');
+        for (Operation op : Operation.values()) {
+            LatencyHistogram h = histogram(op);
+            for (double q : new double[]{50, 90, 99, 99.9}) {
+                text.append("paystation_latency_nanos{op=\"").append(op.label())
+                        .append("\",quantile=\"").append(q / 100).append("\"} ")
+                        .append(h.percentile(q)).append('\n');
+            }
+            text.append("paystation_latency_nanos_count{op=\"").append(op.label())
+                    .append("\"} ").append(h.count()).append('\n');
+            text.append("paystation_latency_nanos_sum{op=\"").append(op.label())
+                    .append("\"} ").append(h.sum()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Register the metrics with the platform MBean server.
+     *
+     * @param name the JMX object name, for example
+     * "edu.temple.cis.paystation:type=PayStationMetrics,station=1"
+     */
+    public void registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + name, e);
+        }
+    }
+
+    /**
+     * Serve the plain text metrics over HTTP at /metrics on the loopback
+     * interface.
+     *
+     * @param port the port to listen on; 0 picks a free port
+     * @return the running endpoint; close it to stop serving
+     */
+    public MetricsEndpoint startEndpoint(int port) {
+        return startEndpoint(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Serve the plain text metrics over HTTP at /metrics.
+     *
+     * @param host the address of the interface to listen on
+     * @param port the port to listen on; 0 picks a free port
+     * @return the running endpoint; close it to stop serving
+     */
+    public MetricsEndpoint startEndpoint(InetAddress host, int port) {
+        try {
+            return new MetricsEndpoint(this, host, port);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open metrics port " + port, e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * JMX view of the metrics of a pay station.
+ */
+package edu.temple.cis.paystation;
+
+public interface PayStationMetricsMBean {
+
+    public long getCoinsInserted();
+
+    public long getIllegalCoins();
+
+    public long getBuys();
+
+    public long getCancels();
+
+    public long getEmpties();
+
+    /**
+     * @param coinValue the coin in cent
+     * @return the number of such coins inserted
+     */
+    public long coins(int coinValue);
+
+    /**
+     * @param operation addPayment, buy, cancel or empty
+     * @param percentile the share in percent, from 0 to 100
+     * @return the latency of the operation at the percentile in nanoseconds
+     */
+    public long latencyNanos(String operation, double percentile);
+
+    /**
+     * @return all metrics in the plain text scrape format
+     */
+    public String getText();
+}
@@ -0,0 +1,738 @@
+/**
+ * Owns the pay stations of a fleet, partitioned over shards and nodes.
+ *
+ * Responsibilities:
+ *
+ * 1) Assign every station ID to a node with consistent hashing;
+ * 2) Keep the stations of this node in shards, each run by one thread;
+ * 3) Route coins, buys and cancels to the shard or node owning the station.
+ *
+ * Each node has VIRTUAL_NODES points on a hash ring, and a station belongs
+ * to the node of the first point at or after the hash of its ID. Adding a
+ * node of n therefore moves about 1/n of the stations, all of them to the
+ * new node. The stations of this node are spread over the shards by other
+ * bits of the same hash.
+ *
+ * A shard is a thread with a lock-free queue of commands. Only that thread
+ * touches the stations of the shard, so the stations need no locks. Other
+ * nodes are reached through PayStationServer: commands for a node are
+ * pipelined over one connection by a thread of its own. Results come back
+ * as futures of PayStationUpdate; a rejected coin is an update, not an
+ * error.
+ *
+ * Routing reads an immutable ring from a volatile field, so it takes no
+ * locks either. When the ring changes, local stations that now belong to
+ * another node are dropped: the coins of an ongoing transaction are
+ * returned through the MoveHandler, so the terminal can give them back, and
+ * the money collected so far is kept for empty(). The station starts over
+ * on its new node. Commands that reach a removed node fail, and so do the
+ * commands still queued when the registry is closed.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class PayStationRegistry implements Closeable {
+
+    // Points of each node on the ring; more points spread stations more evenly
+    public static final int VIRTUAL_NODES = 160;
+
+    /**
+     * Receives the stations that moved to another node.
+     */
+    public interface MoveHandler {
+
+        /**
+         * Called on the thread of the shard that kept the station; must not
+         * throw.
+         *
+         * @param stationId the station
+         * @param coins the coins of its ongoing transaction, returned as by
+         * cancel(); empty if there was none
+         */
+        public void moved(int stationId, Map<Integer, Integer> coins);
+    }
+
+    private final String localNode;
+    private final RateStrategy rateStrategy;
+    private final Shard[] shards;
+    // Changed only under the registry lock; routing uses the ring instead
+    private final Map<String, RemoteNode> remotes = new HashMap<>();
+    private final List<RemoteNode> removed = new ArrayList<>();
+    private volatile Ring ring;
+    private volatile MoveHandler moveHandler;
+
+    /**
+     * @param localNode the name of this node
+     * @param shards the number of shards, and threads, on this node
+     * @param rateStrategy the rate of the stations of this node
+     */
+    public PayStationRegistry(String localNode, int shards, RateStrategy rateStrategy) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is needed: " + shards);
+        }
+        this.localNode = localNode;
+        this.rateStrategy = rateStrategy;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        this.ring = new Ring(localNode, remotes.values());
+        for (Shard shard : this.shards) {
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * Add a node reached through the PayStationServer at address. Local
+     * stations that now belong to it are dropped.
+     *
+     * @param name the name of the node
+     * @param address the address of its server
+     * @return the number of local stations that moved to the node
+     * @throws IOException if the server cannot be reached
+     */
+    public synchronized int addNode(String name, InetSocketAddress address) throws IOException {
+        if (name.equals(localNode) || remotes.containsKey(name)) {
+            throw new IllegalArgumentException("Node already added: " + name);
+        }
+        RemoteNode node = new RemoteNode(name, address);
+        remotes.put(name, node);
+        node.thread.start();
+        return changeRing();
+    }
+
+    /**
+     * Remove a node; its stations are spread over the remaining nodes. The
+     * commands already sent to it are still answered; later ones fail.
+     *
+     * @param name the name of the node
+     * @return the number of local stations that moved, which is always 0
+     */
+    public synchronized int removeNode(String name) {
+        RemoteNode node = remotes.remove(name);
+        if (node == null) {
+            throw new IllegalArgumentException("Unknown node: " + name);
+        }
+        int moved = changeRing();
+        node.retire();
+        removed.add(node);
+        return moved;
+    }
+
+    /*
+     * Publish a ring of the current nodes and drop the local stations that
+     * moved. A command routed on the old ring may still reach a shard after
+     * the drop; the shard then finds no station and routes it again.
+     */
+    private int changeRing() {
+        Ring next = new Ring(localNode, remotes.values());
+        ring = next;
+        CompletableFuture<?>[] moved = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            moved[i] = shard.call(result -> result.complete(shard.dropMoved(next)));
+        }
+        int total = 0;
+        for (CompletableFuture<?> m : moved) {
+            total += (Integer) m.join();
+        }
+        return total;
+    }
+
+    /**
+     * Start or stop passing the stations that move to another node to a
+     * handler. Without one the coins of their ongoing transactions are
+     * reported on standard error.
+     *
+     * @param moveHandler the handler, or null to stop
+     */
+    public void setMoveHandler(MoveHandler moveHandler) {
+        this.moveHandler = moveHandler;
+    }
+
+    /**
+     * @param stationId the ID of a station
+     * @return the name of the node owning the station
+     */
+    public String nodeOf(int stationId) {
+        RemoteNode node = ring.owner(hash(stationId));
+        return node == null ? localNode : node.name;
+    }
+
+    /**
+     * @param stationId the ID of a station of this node
+     * @return the shard of this node keeping the station
+     */
+    public int shardOf(int stationId) {
+        return shardOf(hash(stationId));
+    }
+
+    private int shardOf(long hash) {
+        return (int) (((hash & 0xFFFFFFFFL) * shards.length) >>> 32);
+    }
+
+    public CompletableFuture<PayStationUpdate> addPayment(int stationId, int coinValue) {
+        return submit(stationId, PayStationCommand.coin(coinValue));
+    }
+
+    public CompletableFuture<PayStationUpdate> buy(int stationId) {
+        return submit(stationId, PayStationCommand.BUY);
+    }
+
+    public CompletableFuture<PayStationUpdate> cancel(int stationId) {
+        return submit(stationId, PayStationCommand.CANCEL);
+    }
+
+    /**
+     * Run a command on the station, wherever it is.
+     *
+     * @param stationId the ID of the station
+     * @param command the command
+     * @return the update of the station, completed by the owning shard or
+     * node; completed exceptionally if the node cannot be reached
+     */
+    public CompletableFuture<PayStationUpdate> submit(int stationId, PayStationCommand command) {
+        long hash = hash(stationId);
+        RemoteNode node = ring.owner(hash);
+        if (node == null) {
+            Shard shard = shards[shardOf(hash)];
+            return shard.call(result -> shard.handle(stationId, command, result));
+        }
+        CompletableFuture<PayStationUpdate> result = new CompletableFuture<>();
+        node.submit(new Forward(stationId, command, result));
+        return result;
+    }
+
+    /**
+     * Empty the stations of this node. Other nodes are emptied by their
+     * own servers.
+     *
+     * @return the money collected since the last call
+     */
+    public CompletableFuture<Long> empty() {
+        CompletableFuture<Long> total = CompletableFuture.completedFuture(0L);
+        for (Shard shard : shards) {
+            CompletableFuture<Long> emptied = shard.call(result -> result.complete(shard.empty()));
+            total = total.thenCombine(emptied, Math::addExact);
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of stations kept by this node
+     */
+    public int stationCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.count;
+        }
+        return count;
+    }
+
+    /**
+     * Stop the shards and the connections to other nodes. Commands not run
+     * yet, and commands sent later, complete exceptionally.
+     */
+    @Override
+    public synchronized void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        for (RemoteNode node : remotes.values()) {
+            node.close();
+        }
+        for (RemoteNode node : removed) {
+            node.close();
+        }
+        // Once the threads are gone every later command is abandoned
+        for (Shard shard : shards) {
+            shard.awaitStopped();
+        }
+        remotes.clear();
+        removed.clear();
+    }
+
+    /*
+     * Spread the bits of x; the finalizer of SplittableRandom.
+     */
+    static long hash(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /*
+     * The points of all nodes on the ring, sorted, with their owners; null
+     * owns the points of this node.
+     */
+    private static final class Ring {
+
+        private final long[] points;
+        private final RemoteNode[] owners;
+
+        Ring(String localNode, Collection<RemoteNode> remotes) {
+            RemoteNode[] nodes = new RemoteNode[remotes.size() + 1];
+            String[] names = new String[nodes.length];
+            int n = 1;
+            for (RemoteNode node : remotes) {
+                nodes[n] = node;
+                names[n++] = node.name;
+            }
+            names[0] = localNode;
+            Map<Long, Integer> ownerOf = new HashMap<>();
+            long[] keys = new long[nodes.length * VIRTUAL_NODES];
+            int k = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                // Every node must build the same ring, so points only
+                // depend on the names of the nodes
+                long seed = (long) names[i].hashCode() << 32;
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    long point = hash(seed | v);
+                    // On a clash the first node keeps the point
+                    if (ownerOf.putIfAbsent(point, i) == null) {
+                        keys[k++] = point;
+                    }
+                }
+            }
+            points = Arrays.copyOf(keys, k);
+            Arrays.sort(points);
+            owners = new RemoteNode[k];
+            for (int i = 0; i < k; i++) {
+                owners[i] = nodes[ownerOf.get(points[i])];
+            }
+        }
+
+        RemoteNode owner(long hash) {
+            int i = Arrays.binarySearch(points, hash);
+            if (i < 0) {
+                i = -i - 1;
+                if (i == points.length) {
+                    i = 0;
+                }
+            }
+            return owners[i];
+        }
+    }
+
+    /*
+     * A thread running the tasks of a lock-free queue in order. The thread
+     * parks when the queue is empty and is woken by the next submit. Tasks
+     * left when it is closed, or submitted after, are abandoned.
+     */
+    private abstract static class Worker<T> implements Runnable {
+
+        final Thread thread;
+        private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+        private volatile boolean waiting;
+        private volatile boolean running = true;
+
+        Worker(String name) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void submit(T task) {
+            queue.offer(task);
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+            if (!running) {
+                abandonQueued();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                T task = queue.poll();
+                if (task != null) {
+                    handle(task);
+                    continue;
+                }
+                idle();
+                // Set before looking at the queue again, so a task offered
+                // meanwhile either is seen here or unparks the thread
+                waiting = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+            stopped();
+            abandonQueued();
+        }
+
+        private void abandonQueued() {
+            for (T task; (task = queue.poll()) != null; ) {
+                abandon(task);
+            }
+        }
+
+        abstract void handle(T task);
+
+        /*
+         * Called for a task that will not run because the worker is closed.
+         */
+        abstract void abandon(T task);
+
+        /*
+         * Called on the thread when it stops.
+         */
+        void stopped() {
+        }
+
+        /*
+         * Called when the queue has been drained.
+         */
+        void idle() {
+        }
+
+        void close() {
+            running = false;
+            LockSupport.unpark(thread);
+        }
+
+        void awaitStopped() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Work for a shard and the future it completes, at once or later.
+     */
+    private static final class Task<R> {
+
+        final Consumer<CompletableFuture<R>> work;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Task(Consumer<CompletableFuture<R>> work) {
+            this.work = work;
+        }
+
+        void run() {
+            try {
+                work.accept(result);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /*
+     * The stations of one shard, only used by the thread of the shard.
+     */
+    private final class Shard extends Worker<Task<?>> {
+
+        private final Map<Integer, PayStationImpl> stations = new HashMap<>();
+        // Money of stations that moved to other nodes, not yet emptied
+        private long movedMoney;
+        volatile int count;
+
+        Shard(int index) {
+            super("paystation-shard-" + index);
+        }
+
+        <R> CompletableFuture<R> call(Consumer<CompletableFuture<R>> work) {
+            Task<R> task = new Task<>(work);
+            submit(task);
+            return task.result;
+        }
+
+        @Override
+        void handle(Task<?> task) {
+            task.run();
+        }
+
+        @Override
+        void abandon(Task<?> task) {
+            task.result.completeExceptionally(new IllegalStateException("Registry closed"));
+        }
+
+        void handle(int stationId, PayStationCommand command,
+                CompletableFuture<PayStationUpdate> result) {
+            PayStationImpl ps = stations.get(stationId);
+            if (ps == null) {
+                // The command may have been routed on a ring that changed
+                // since; the drop of the change has run, so ask the new ring
+                RemoteNode owner = ring.owner(hash(stationId));
+                if (owner != null) {
+                    owner.submit(new Forward(stationId, command, result));
+                    return;
+                }
+                ps = new PayStationImpl(rateStrategy, stationId);
+                stations.put(stationId, ps);
+                count = stations.size();
+            }
+            result.complete(update(ps, command));
+        }
+
+        private PayStationUpdate update(PayStationImpl ps, PayStationCommand command) {
+            switch (command.getType()) {
+                case COIN:
+                    if (ps.tryAddPayment(command.getCoinValue()) == PayStation.COIN_ACCEPTED) {
+                        return PayStationUpdate.display(ps.readDisplay());
+                    }
+                    return PayStationUpdate.rejected(command.getCoinValue(), ps.readDisplay());
+                case BUY:
+                    return PayStationUpdate.receipt(ps.buy());
+                default:
+                    return PayStationUpdate.cancelled(ps.cancel());
+            }
+        }
+
+        long empty() {
+            long total = movedMoney;
+            movedMoney = 0;
+            for (PayStationImpl ps : stations.values()) {
+                total = Math.addExact(total, ps.empty());
+            }
+            return total;
+        }
+
+        int dropMoved(Ring next) {
+            int moved = 0;
+            Iterator<Map.Entry<Integer, PayStationImpl>> it = stations.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, PayStationImpl> station = it.next();
+                if (next.owner(hash(station.getKey())) != null) {
+                    PayStationImpl ps = station.getValue();
+                    Map<Integer, Integer> coins = ps.cancel();
+                    MoveHandler handler = moveHandler;
+                    if (handler != null) {
+                        handler.moved(station.getKey(), coins);
+                    } else if (!coins.isEmpty()) {
+                        System.err.println("Station " + station.getKey() + " moved; returned "
+                                + coins);
+                    }
+                    movedMoney = Math.addExact(movedMoney, ps.empty());
+                    it.remove();
+                    moved++;
+                }
+            }
+            count = stations.size();
+            return moved;
+        }
+    }
+
+    /*
+     * A command on its way to another node.
+     */
+    private static final class Forward {
+
+        final int stationId;
+        final PayStationCommand command;
+        final CompletableFuture<PayStationUpdate> result;
+
+        Forward(int stationId, PayStationCommand command,
+                CompletableFuture<PayStationUpdate> result) {
+            this.stationId = stationId;
+            this.command = command;
+            this.result = result;
+        }
+    }
+
+    /*
+     * The connection to the server of another node. Commands are written
+     * as they come and the replies read once the queue is drained, or
+     * every MAX_PIPELINED commands.
+     */
+    private static final class RemoteNode extends Worker<Forward> {
+
+        private static final int MAX_PIPELINED = 64;
+        // Submitted when the node is removed
+        private static final Forward RETIRE = new Forward(-1, null, null);
+
+        final String name;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        // Commands written whose reply is not read yet; null for TERMINAL
+        private final ArrayDeque<Forward> pending = new ArrayDeque<>();
+        private int terminal = -1;
+        private IOException failure;
+
+        RemoteNode(String name, InetSocketAddress address) throws IOException {
+            super("paystation-node-" + name);
+            this.name = name;
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        void abandon(Forward forward) {
+            if (forward != RETIRE) {
+                forward.result.completeExceptionally(new IOException("Registry closed"));
+            }
+        }
+
+        @Override
+        void stopped() {
+            fail(new IOException("Registry closed"));
+        }
+
+        @Override
+        void handle(Forward forward) {
+            if (forward == RETIRE) {
+                idle();
+                closeSocket();
+                if (failure == null) {
+                    failure = new IOException("Node removed: " + name);
+                }
+                return;
+            }
+            if (failure != null) {
+                forward.result.completeExceptionally(failure);
+                return;
+            }
+            try {
+                if (forward.stationId != terminal) {
+                    out.write("TERMINAL " + forward.stationId + "\n");
+                    pending.add(new Forward(forward.stationId, null, null));
+                    terminal = forward.stationId;
+                }
+                switch (forward.command.getType()) {
+                    case COIN:
+                        out.write("TRY " + forward.command.getCoinValue() + "\n");
+                        break;
+                    case BUY:
+                        out.write("BUY\n");
+                        break;
+                    default:
+                        out.write("CANCEL\n");
+                }
+                pending.add(forward);
+                if (pending.size() >= MAX_PIPELINED) {
+                    idle();
+                }
+            } catch (IOException e) {
+                fail(e);
+                forward.result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        void idle() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                out.flush();
+                while (!pending.isEmpty()) {
+                    Forward forward = pending.peek();
+                    String reply = in.readLine();
+                    if (reply == null) {
+                        throw new IOException("Connection closed by node");
+                    }
+                    pending.poll();
+                    if (forward.result != null) {
+                        complete(forward, reply);
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private static void complete(Forward forward, String reply) {
+            int space = reply.indexOf(' ');
+            String status = space < 0 ? reply : reply.substring(0, space);
+            String rest = space < 0 ? "" : reply.substring(space + 1);
+            if (status.equals("ERR")) {
+                forward.result.completeExceptionally(new IOException(rest));
+                return;
+            }
+            try {
+                switch (forward.command.getType()) {
+                    case COIN:
+                        int display = Integer.parseInt(rest);
+                        forward.result.complete(status.equals("OK")
+                                ? PayStationUpdate.display(display)
+                                : PayStationUpdate.rejected(forward.command.getCoinValue(), display));
+                        break;
+                    case BUY:
+                        forward.result.complete(PayStationUpdate.receipt(ReceiptImpl.of(
+                                Integer.parseInt(rest), System.currentTimeMillis(),
+                                forward.stationId)));
+                        break;
+                    default:
+                        Map<Integer, Integer> coins = new LinkedHashMap<>();
+                        for (String coin : rest.isEmpty() ? new String[0] : rest.split(" ")) {
+                            int eq = coin.indexOf('=');
+                            coins.put(Integer.parseInt(coin.substring(0, eq)),
+                                    Integer.parseInt(coin.substring(eq + 1)));
+                        }
+                        forward.result.complete(PayStationUpdate.cancelled(coins));
+                }
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                forward.result.completeExceptionally(new IOException("Bad reply: " + reply));
+            }
+        }
+
+        /*
+         * The connection is broken: fail the commands waiting for a reply
+         * and all later ones.
+         */
+        private void fail(IOException e) {
+            failure = e;
+            for (Forward forward : pending) {
+                if (forward.result != null) {
+                    forward.result.completeExceptionally(e);
+                }
+            }
+            pending.clear();
+        }
+
+        /*
+         * Answer the commands sent so far and fail later ones. The thread
+         * keeps running until close().
+         */
+        void retire() {
+            submit(RETIRE);
+        }
+
+        @Override
+        void close() {
+            super.close();
+            closeSocket();
+        }
+
+        private void closeSocket() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Server hosting the pay station sessions of many terminals in one process.
+ *
+ * Responsibilities:
+ *
+ * 1) Accept terminal connections on a TCP port;
+ * 2) Keep one PayStation session per terminal ID;
+ * 3) Serve the pay station operations over a line protocol.
+ *
+ * Protocol, one command per line; every command gets one reply line:
+ *
+ *   TERMINAL id   select the session of terminal id (must come first)
+ *   ADD coin      insert a coin; replies OK display
+ *   TRY coin      insert a coin; replies OK display, or REJECTED display
+ *                 if the coin is not valid
+ *   DISPLAY       replies OK display
+ *   BUY           replies OK minutes on the receipt
+ *   CANCEL        replies OK followed by coin=count pairs returned
+ *   EMPTY         replies OK total collected by the terminal
+ *   QUIT          close the connection
+ *
+ * Errors are replied as ERR message. A session survives its connection, so
+ * a terminal that reconnects continues its transaction.
+ *
+ * Each connection is served by a thread of its own. Blocking reads are
+ * cheap for the server that way, and on Java 21 or later the executor can be
+ * replaced by Executors.newVirtualThreadPerTaskExecutor().
+ */
+package edu.temple.cis.paystation;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PayStationServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final RateStrategy rateStrategy;
+    private final Map<String, PayStation> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "paystation-terminal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Open the server on the loopback interface.
+     *
+     * @param port the port to listen on; 0 picks a free port
+     * @param rateStrategy the rate of all sessions
+     * @throws IOException if the port cannot be opened
+     */
+    public PayStationServer(int port, RateStrategy rateStrategy) throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.rateStrategy = rateStrategy;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Start accepting connections on a background thread.
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "paystation-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            }
+        } catch (SocketException e) {
+            // Server closed
+        } catch (IOException e) {
+            System.err.println("Pay station server stopped: " + e.getMessage());
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        s.getOutputStream(), StandardCharsets.US_ASCII))) {
+            s.setTcpNoDelay(true);
+            PayStation ps = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("QUIT")) {
+                    break;
+                }
+                if (line.startsWith("TERMINAL ")) {
+                    ps = sessions.computeIfAbsent(line.substring(9).trim(),
+                            id -> new PayStationImpl(rateStrategy));
+                    out.write("OK\n");
+                } else if (ps == null) {
+                    out.write("ERR No terminal selected\n");
+                } else {
+                    synchronized (ps) {
+                        out.write(execute(ps, line));
+                    }
+                }
+                // Only flush when the terminal has no more pipelined commands
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Terminal disconnected; its session is kept
+        }
+    }
+
+    /*
+     * Run one command against a session and return the reply line.
+     */
+    static String execute(PayStation ps, String command) {
+        int space = command.indexOf(' ');
+        String op = space < 0 ? command : command.substring(0, space);
+        switch (op) {
+            case "ADD":
+                try {
+                    ps.addPayment(Integer.parseInt(command.substring(space + 1).trim()));
+                    return "OK " + ps.readDisplay() + "\n";
+                } catch (IllegalCoinException e) {
+                    return "ERR " + e.getMessage() + "\n";
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    return "ERR Bad coin: " + command + "\n";
+                }
+            case "TRY":
+                try {
+                    int coin = Integer.parseInt(command.substring(space + 1).trim());
+                    String reply = ps.tryAddPayment(coin) == PayStation.COIN_ACCEPTED
+                            ? "OK " : "REJECTED ";
+                    return reply + ps.readDisplay() + "\n";
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    return "ERR Bad coin: " + command + "\n";
+                }
+            case "DISPLAY":
+                return "OK " + ps.readDisplay() + "\n";
+            case "BUY":
+                return "OK " + ps.buy().value() + "\n";
+            case "CANCEL":
+                StringBuilder reply = new StringBuilder("OK");
+                for (Map.Entry<Integer, Integer> coin : ps.cancel().entrySet()) {
+                    reply.append(' ').append(coin.getKey()).append('=').append(coin.getValue());
+                }
+                return reply.append('\n').toString();
+            case "EMPTY":
+                return "OK " + ps.empty() + "\n";
+            default:
+                return "ERR Unknown command: " + command + "\n";
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        Town town = args.length > 1 ? Town.valueOf(args[1]) : Town.ALPHA_TOWN;
+        PayStationServer server = new PayStationServer(port, town.rateStrategy());
+        server.start();
+        System.out.println("Pay station server for " + town.displayName()
+                + " listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+}
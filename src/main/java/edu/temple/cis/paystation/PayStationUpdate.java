@@ -0,0 +1,70 @@
+/**
+ * What a ReactivePayStation reports for each command it handles.
+ *
+ * DISPLAY: a coin was accepted; getDisplay() is the new display.
+ * REJECTED: a coin was not valid; getCoinValue() is the coin and
+ *     getDisplay() the unchanged display.
+ * RECEIPT: time was bought; getReceipt() is the receipt.
+ * CANCELLED: the transaction was cancelled; getCoins() are the coins
+ *     returned.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Collections;
+import java.util.Map;
+
+public final class PayStationUpdate {
+
+    public enum Type { DISPLAY, REJECTED, RECEIPT, CANCELLED }
+
+    private final Type type;
+    private final int display, coinValue;
+    private final Receipt receipt;
+    private final Map<Integer, Integer> coins;
+
+    private PayStationUpdate(Type type, int display, int coinValue, Receipt receipt,
+            Map<Integer, Integer> coins) {
+        this.type = type;
+        this.display = display;
+        this.coinValue = coinValue;
+        this.receipt = receipt;
+        this.coins = coins;
+    }
+
+    static PayStationUpdate display(int display) {
+        return new PayStationUpdate(Type.DISPLAY, display, 0, null, Collections.emptyMap());
+    }
+
+    static PayStationUpdate rejected(int coinValue, int display) {
+        return new PayStationUpdate(Type.REJECTED, display, coinValue, null,
+                Collections.emptyMap());
+    }
+
+    static PayStationUpdate receipt(Receipt receipt) {
+        return new PayStationUpdate(Type.RECEIPT, 0, 0, receipt, Collections.emptyMap());
+    }
+
+    static PayStationUpdate cancelled(Map<Integer, Integer> coins) {
+        return new PayStationUpdate(Type.CANCELLED, 0, 0, null, coins);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getDisplay() {
+        return display;
+    }
+
+    public int getCoinValue() {
+        return coinValue;
+    }
+
+    public Receipt getReceipt() {
+        return receipt;
+    }
+
+    public Map<Integer, Integer> getCoins() {
+        return coins;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Rate strategy that answers from a table computed once up front.
+ *
+ * All payments are multiples of 5 cents, so the table holds one entry per
+ * nickel from 0 up to a cap. Payments above the cap are passed on to the
+ * wrapped strategy, and the answers kept in a small cache with one entry
+ * per hash of the amount. The wrapped strategy must give the same answer
+ * for the same amount every time; a RateSchedule may wrap precomputed
+ * rates but not the other way around.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class PrecomputedRateStrategy implements RateStrategy {
+
+    // Default cap on the table size: 100 dollars
+    public static final int DEFAULT_MAX_AMOUNT = 10000;
+    // Entries of the cache for payments above the table; a power of two
+    private static final int CACHE_SIZE = 256;
+
+    private final RateStrategy rateStrategy;
+    private final int[] minutes;
+    // Amount in the high and minutes in the low half; 0 when empty. The
+    // strategy may be shared by stations on several threads
+    private final AtomicLongArray cache = new AtomicLongArray(CACHE_SIZE);
+
+    public PrecomputedRateStrategy(RateStrategy rateStrategy) {
+        this(rateStrategy, DEFAULT_MAX_AMOUNT);
+    }
+
+    /**
+     * @param rateStrategy the strategy to compute the table from
+     * @param maxAmount the largest payment in cents kept in the table
+     */
+    public PrecomputedRateStrategy(RateStrategy rateStrategy, int maxAmount) {
+        if (maxAmount < 0) {
+            throw new IllegalArgumentException("Negative table cap: " + maxAmount);
+        }
+        this.rateStrategy = rateStrategy;
+        minutes = new int[maxAmount / 5 + 1];
+        for (int i = 0; i < minutes.length; i++) {
+            minutes[i] = rateStrategy.calculateTime(i * 5);
+        }
+    }
+
+    @Override
+    public int calculateTime(int amount) {
+        int i = amount / 5;
+        if (i < minutes.length) {
+            return minutes[i];
+        }
+        int slot = i & (CACHE_SIZE - 1);
+        long entry = cache.getOpaque(slot);
+        if ((int) (entry >>> 32) == amount) {
+            return (int) entry;
+        }
+        int time = rateStrategy.calculateTime(amount);
+        cache.setOpaque(slot, (long) amount << 32 | (time & 0xFFFFFFFFL));
+        return time;
+    }
+
+    @Override
+    public boolean isFree() {
+        return rateStrategy.isFree();
+    }
+}
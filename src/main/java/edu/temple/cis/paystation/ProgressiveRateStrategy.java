@@ -0,0 +1,24 @@
+/**
+ * Rate strategy where parking gets more expensive the longer you stay.
+ *
+ * First hour: 5 cents buys 2 minutes (150 cents for 60 minutes);
+ * second hour: 5 cents buys 1.5 minutes (200 cents for 60 minutes);
+ * third hour and on: 5 cents buys 1 minute.
+ *
+ * Fractions of a minute are truncated. Only integer arithmetic is used.
+ */
+package edu.temple.cis.paystation;
+
+public class ProgressiveRateStrategy implements RateStrategy {
+
+    @Override
+    public int calculateTime(int amount) {
+        if (amount < 150) {
+            return amount * 2 / 5;
+        } else if (amount < 350) {
+            return (amount - 150) * 3 / 10 + 60;
+        } else {
+            return (amount - 350) / 5 + 120;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Reads the rate of a pay station from a configuration file.
+ *
+ * The file is a properties file. "rate" names the rate to use: one of the
+ * towns (AlphaTown, BetaTown, ...) or a rate defined in the file as
+ * rate.name.type plus the settings of that type:
+ *
+ *   linear        minutesPer5Cents, the minutes every 5 cents buy
+ *   progressive   no settings
+ *   town          town, the name of a town whose rate to use
+ *   weekend       weekday and weekend, the names of the rates to use;
+ *                 holiday.yyyy-mm-dd, the name of the rate on that day
+ *
+ * For example:
+ *
+ *   rate = downtown
+ *   rate.downtown.type = weekend
+ *   rate.downtown.weekday = BetaTown
+ *   rate.downtown.weekend = cheap
+ *   rate.downtown.holiday.2023-11-23 = free
+ *   rate.cheap.type = linear
+ *   rate.cheap.minutesPer5Cents = 3
+ *   rate.free.type = linear
+ *   rate.free.minutesPer5Cents = 0
+ *
+ * The file is read once into precomputed, immutable rate strategies.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+public class RateConfig {
+
+    private final Properties properties;
+    private final Clock clock;
+    private final Map<String, RateStrategy> parsed = new HashMap<>();
+    private final Set<String> parsing = new HashSet<>();
+
+    private RateConfig(Properties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Read the rate from a configuration file.
+     *
+     * @param file the properties file
+     * @param clock the clock for rates that depend on the time
+     * @return the rate named by the "rate" property
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the configuration is not valid
+     */
+    public static RateStrategy load(Path file, Clock clock) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        return parse(properties, clock);
+    }
+
+    /**
+     * Read the rate from configuration properties.
+     *
+     * @param properties the configuration
+     * @param clock the clock for rates that depend on the time
+     * @return the rate named by the "rate" property
+     * @throws IllegalArgumentException if the configuration is not valid
+     */
+    public static RateStrategy parse(Properties properties, Clock clock) {
+        return new RateConfig(properties, clock).rate(required("rate", properties));
+    }
+
+    private RateStrategy rate(String name) {
+        RateStrategy rate = parsed.get(name);
+        if (rate != null) {
+            return rate;
+        }
+        if (!parsing.add(name)) {
+            throw new IllegalArgumentException("Rate " + name + " refers to itself");
+        }
+        String prefix = "rate." + name + ".";
+        String type = properties.getProperty(prefix + "type");
+        if (type == null) {
+            rate = town(name).rateStrategy(clock);
+        } else {
+            switch (type.trim()) {
+                case "linear":
+                    rate = new PrecomputedRateStrategy(new LinearRateStrategy(
+                            number(prefix + "minutesPer5Cents")));
+                    break;
+                case "progressive":
+                    rate = new PrecomputedRateStrategy(new ProgressiveRateStrategy());
+                    break;
+                case "town":
+                    rate = town(required(prefix + "town", properties)).rateStrategy(clock);
+                    break;
+                case "weekend":
+                    rate = weekend(prefix);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown type of rate " + name + ": " + type);
+            }
+        }
+        parsing.remove(name);
+        parsed.put(name, rate);
+        return rate;
+    }
+
+    private RateStrategy weekend(String prefix) {
+        RateStrategy weekendRate = rate(required(prefix + "weekend", properties));
+        List<RateSchedule.Band> bands = new ArrayList<>();
+        bands.add(new RateSchedule.Band(DayOfWeek.SATURDAY, LocalTime.MIDNIGHT,
+                LocalTime.MIDNIGHT, weekendRate));
+        bands.add(new RateSchedule.Band(DayOfWeek.SUNDAY, LocalTime.MIDNIGHT,
+                LocalTime.MIDNIGHT, weekendRate));
+        Map<LocalDate, RateStrategy> holidays = new HashMap<>();
+        String holidayPrefix = prefix + "holiday.";
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(holidayPrefix)) {
+                try {
+                    holidays.put(LocalDate.parse(key.substring(holidayPrefix.length())),
+                            rate(properties.getProperty(key).trim()));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("Bad holiday date: " + key, e);
+                }
+            }
+        }
+        return new RateSchedule(clock, rate(required(prefix + "weekday", properties)),
+                bands, holidays);
+    }
+
+    /*
+     * A setting that must be a number of 0 or more; rates and thresholds
+     * below 0 would sell negative parking time.
+     */
+    private int number(String key) {
+        String value = required(key, properties);
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + key + " = " + value, e);
+        }
+        if (number < 0) {
+            throw new IllegalArgumentException("Negative setting: " + key + " = " + value);
+        }
+        return number;
+    }
+
+    private static Town town(String name) {
+        for (Town town : Town.values()) {
+            if (town.displayName().equalsIgnoreCase(name) || town.name().equalsIgnoreCase(name)) {
+                return town;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rate or town: " + name);
+    }
+
+    private static String required(String key, Properties properties) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing setting: " + key);
+        }
+        return value.trim();
+    }
+}
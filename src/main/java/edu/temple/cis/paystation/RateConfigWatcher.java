@@ -0,0 +1,129 @@
+/**
+ * Watches a rate configuration file and hands out the new rate whenever
+ * the file changes.
+ *
+ * Responsibilities:
+ *
+ * 1) Read the rate configuration when started and after every change;
+ * 2) Pass every new rate to the listeners, typically
+ *    PayStationImpl.setNextRateStrategy, which lets ongoing transactions
+ *    finish under the old rate.
+ *
+ * A change that cannot be read or is not a valid configuration is reported
+ * and ignored; the stations keep the last valid rate. A listener that
+ * fails is reported too, and the others still get the rate.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class RateConfigWatcher implements Closeable {
+
+    private final Path file;
+    private final Clock clock;
+    private final List<Consumer<RateStrategy>> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private volatile RateStrategy current;
+
+    /**
+     * Read the configuration file and start watching it.
+     *
+     * @param file the rate configuration file
+     * @param clock the clock for rates that depend on the time
+     * @throws IOException if the file cannot be read or watched
+     * @throws IllegalArgumentException if the configuration is not valid
+     */
+    public RateConfigWatcher(Path file, Clock clock) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.clock = clock;
+        this.current = RateConfig.load(this.file, clock);
+        watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(this::watch, "rate-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * @return the rate of the last valid configuration read
+     */
+    public RateStrategy current() {
+        return current;
+    }
+
+    /**
+     * Pass the current rate and every later rate to a listener. Done under
+     * the lock of reload(), so a reload running meanwhile cannot leave the
+     * listener with an older rate.
+     *
+     * @param listener receives the rates; called on the watcher thread
+     */
+    public synchronized void addListener(Consumer<RateStrategy> listener) {
+        listeners.add(listener);
+        listener.accept(current);
+    }
+
+    /**
+     * Read the configuration file again and pass the rate to the listeners.
+     *
+     * @return true if the configuration was valid
+     */
+    public synchronized boolean reload() {
+        RateStrategy rate;
+        try {
+            rate = RateConfig.load(file, clock);
+        } catch (IOException | RuntimeException e) {
+            // Any failure, a bad date included, must not end the watcher
+            System.err.println("Keeping current rate; cannot read " + file + ": " + e);
+            return false;
+        }
+        current = rate;
+        for (Consumer<RateStrategy> listener : listeners) {
+            try {
+                listener.accept(rate);
+            } catch (RuntimeException e) {
+                System.err.println("Rate listener failed on reload of " + file + ": " + e);
+            }
+        }
+        return true;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object changedFile = event.context();
+                    if (changedFile == null || file.getFileName().equals(changedFile)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
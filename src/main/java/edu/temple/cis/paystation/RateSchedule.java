@@ -0,0 +1,201 @@
+/**
+ * Rate strategy that changes with the time of the week.
+ *
+ * Responsibilities:
+ *
+ * 1) Know the rate of every time band of the week and of holidays;
+ * 2) Pick the rate in effect when a coin is inserted.
+ *
+ * The bands are compiled once into a sorted index of the minutes of the
+ * week where the rate changes. The rate in effect is kept together with the
+ * period it is valid for, so most lookups only read the clock and compare
+ * it with that period. Only when the period has passed is the index
+ * searched, with a binary search, and the holiday table consulted.
+ */
+package edu.temple.cis.paystation;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RateSchedule implements RateStrategy {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    /**
+     * A rate that applies on a day of the week from one time of day to
+     * another.
+     */
+    public static class Band {
+
+        final DayOfWeek day;
+        final int fromMinute, toMinute;
+        final RateStrategy rate;
+
+        /**
+         * @param day the day of the week
+         * @param from the start of the band
+         * @param to the end of the band, exclusive; LocalTime.MIDNIGHT for
+         * the end of the day
+         * @param rate the rate during the band
+         */
+        public Band(DayOfWeek day, LocalTime from, LocalTime to, RateStrategy rate) {
+            this.day = day;
+            this.fromMinute = from.getHour() * 60 + from.getMinute();
+            this.toMinute = to.equals(LocalTime.MIDNIGHT)
+                    ? MINUTES_PER_DAY : to.getHour() * 60 + to.getMinute();
+            if (toMinute <= fromMinute) {
+                throw new IllegalArgumentException("Band ends before it starts: "
+                        + from + " - " + to);
+            }
+            this.rate = rate;
+        }
+    }
+
+    /*
+     * The rate in effect from start (inclusive) to end (exclusive), in
+     * milliseconds since the epoch.
+     */
+    private static final class Period {
+
+        final long start, end;
+        final RateStrategy rate;
+
+        Period(long start, long end, RateStrategy rate) {
+            this.start = start;
+            this.end = end;
+            this.rate = rate;
+        }
+    }
+
+    private final Clock clock;
+    // Minute of the week, counted from Monday 00:00, where each rate starts
+    private final int[] starts;
+    private final RateStrategy[] rates;
+    private final Map<LocalDate, RateStrategy> holidays;
+    // Whether any band or holiday is free; if not, isFree() needs no clock
+    private final boolean anyFree;
+    private volatile Period period = new Period(0, 0, null);
+
+    /**
+     * @param clock the clock giving the time and time zone
+     * @param defaultRate the rate outside all bands
+     * @param bands the bands; later bands take precedence where they overlap
+     * @param holidays rates for whole days that take precedence over all
+     * bands
+     */
+    public RateSchedule(Clock clock, RateStrategy defaultRate, List<Band> bands,
+            Map<LocalDate, RateStrategy> holidays) {
+        this.clock = clock;
+        this.holidays = new HashMap<>(holidays);
+
+        RateStrategy[] byMinute = new RateStrategy[MINUTES_PER_WEEK];
+        Arrays.fill(byMinute, defaultRate);
+        for (Band band : bands) {
+            int dayStart = (band.day.getValue() - 1) * MINUTES_PER_DAY;
+            Arrays.fill(byMinute, dayStart + band.fromMinute, dayStart + band.toMinute, band.rate);
+        }
+        int count = 1;
+        for (int m = 1; m < MINUTES_PER_WEEK; m++) {
+            if (byMinute[m] != byMinute[m - 1]) {
+                count++;
+            }
+        }
+        starts = new int[count];
+        rates = new RateStrategy[count];
+        rates[0] = byMinute[0];
+        for (int m = 1, i = 1; m < MINUTES_PER_WEEK; m++) {
+            if (byMinute[m] != byMinute[m - 1]) {
+                starts[i] = m;
+                rates[i++] = byMinute[m];
+            }
+        }
+        boolean free = false;
+        for (RateStrategy rate : rates) {
+            free |= rate.isFree();
+        }
+        for (RateStrategy rate : this.holidays.values()) {
+            free |= rate.isFree();
+        }
+        anyFree = free;
+    }
+
+    /**
+     * Create a schedule with one rate on weekdays and another on weekends.
+     *
+     * @param clock the clock giving the time and time zone
+     * @param weekdayRate the rate Monday through Friday
+     * @param weekendRate the rate Saturday and Sunday
+     * @return the schedule
+     */
+    public static RateSchedule weekend(Clock clock, RateStrategy weekdayRate,
+            RateStrategy weekendRate) {
+        return new RateSchedule(clock, weekdayRate, Arrays.asList(
+                new Band(DayOfWeek.SATURDAY, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, weekendRate),
+                new Band(DayOfWeek.SUNDAY, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, weekendRate)),
+                Collections.<LocalDate, RateStrategy>emptyMap());
+    }
+
+    /**
+     * @return the rate in effect now
+     */
+    public RateStrategy currentRate() {
+        long now = clock.millis();
+        Period p = period;
+        if (now < p.start || now >= p.end) {
+            p = periodAt(now);
+            period = p;
+        }
+        return p.rate;
+    }
+
+    @Override
+    public int calculateTime(int amount) {
+        return currentRate().calculateTime(amount);
+    }
+
+    @Override
+    public boolean isFree() {
+        return anyFree && currentRate().isFree();
+    }
+
+    /*
+     * Look up the rate in effect at a time and how long it lasts. A period
+     * never crosses midnight, so holidays need only be checked here.
+     */
+    private Period periodAt(long now) {
+        ZoneId zone = clock.getZone();
+        ZonedDateTime time = Instant.ofEpochMilli(now).atZone(zone);
+        LocalDate date = time.toLocalDate();
+        long midnight = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        RateStrategy holiday = holidays.get(date);
+        if (holiday != null) {
+            return new Period(date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    midnight, holiday);
+        }
+
+        int dayStart = (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY;
+        int minute = dayStart + time.getHour() * 60 + time.getMinute();
+        int i = Arrays.binarySearch(starts, minute);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        int from = Math.max(starts[i], dayStart) - dayStart;
+        int to = (i + 1 < starts.length ? starts[i + 1] : MINUTES_PER_WEEK) - dayStart;
+        long start = date.atTime(from / 60, from % 60).atZone(zone).toInstant().toEpochMilli();
+        long end = to >= MINUTES_PER_DAY ? midnight
+                : date.atTime(to / 60, to % 60).atZone(zone).toInstant().toEpochMilli();
+        return new Period(start, end, rates[i]);
+    }
+}
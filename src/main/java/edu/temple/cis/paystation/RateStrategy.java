@@ -0,0 +1,31 @@
+/**
+ * The strategy for calculating parking time from the payment inserted.
+ *
+ * Responsibilities:
+ *
+ * 1) Calculate the minutes of parking time bought for an amount of cents;
+ * 2) Tell when no time is sold at all.
+ */
+package edu.temple.cis.paystation;
+
+public interface RateStrategy {
+
+    /**
+     * Calculate the parking time bought for the given payment.
+     *
+     * @param amount the payment in cents; always a non-negative multiple of 5
+     * @return the number of minutes parking time the payment buys
+     */
+    public int calculateTime(int amount);
+
+    /**
+     * Tell whether the rate sells no time now, as on free parking days.
+     * Stations refuse coins while their rate is free. Unlike calculateTime
+     * this is asked for every coin, so it should be cheap.
+     *
+     * @return true if no payment buys parking time now
+     */
+    public default boolean isFree() {
+        return false;
+    }
+}
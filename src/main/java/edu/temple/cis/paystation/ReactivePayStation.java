@@ -0,0 +1,137 @@
+/**
+ * Non-blocking facade of a pay station for asynchronous pipelines.
+ *
+ * Responsibilities:
+ *
+ * 1) Take commands from a Flow.Publisher of coins, buys and cancels;
+ * 2) Publish one update per command to a single subscriber: the display,
+ *    a rejected coin, a receipt or the coins returned;
+ * 3) Never request more commands than the subscriber has asked updates for.
+ *
+ * Invalid coins come back as REJECTED updates; no exception is created for
+ * them, which matters when many coins are rejected.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReactivePayStation implements Flow.Processor<PayStationCommand, PayStationUpdate> {
+
+    private final PayStationImpl ps;
+    private final AtomicLong pendingDemand = new AtomicLong();
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super PayStationUpdate> downstream;
+
+    /**
+     * @param ps the pay station; only this facade may use it
+     */
+    public ReactivePayStation(PayStationImpl ps) {
+        this.ps = ps;
+    }
+
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super PayStationUpdate> subscriber) {
+        if (downstream != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                    return;
+                }
+                // Every command gives one update, so demand passes straight upstream
+                addDemand(n);
+                Flow.Subscription up = upstream;
+                if (up != null) {
+                    requestPending(up);
+                }
+            }
+
+            @Override
+            public void cancel() {
+                Flow.Subscription up = upstream;
+                if (up != null) {
+                    up.cancel();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        requestPending(subscription);
+    }
+
+    private void addDemand(long n) {
+        long current, next;
+        do {
+            current = pendingDemand.get();
+            next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!pendingDemand.compareAndSet(current, next));
+    }
+
+    private void requestPending(Flow.Subscription up) {
+        long demand = pendingDemand.getAndSet(0);
+        if (demand > 0) {
+            up.request(demand);
+        }
+    }
+
+    @Override
+    public void onNext(PayStationCommand command) {
+        downstream.onNext(handle(command));
+    }
+
+    /*
+     * Run a command on the pay station and describe the result.
+     */
+    PayStationUpdate handle(PayStationCommand command) {
+        switch (command.getType()) {
+            case COIN:
+                if (ps.tryAddPayment(command.getCoinValue()) == PayStation.COIN_ACCEPTED) {
+                    return PayStationUpdate.display(ps.readDisplay());
+                }
+                return PayStationUpdate.rejected(command.getCoinValue(), ps.readDisplay());
+            case BUY:
+                return PayStationUpdate.receipt(ps.buy());
+            default:
+                return PayStationUpdate.cancelled(ps.cancel());
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Flow.Subscriber<? super PayStationUpdate> d = downstream;
+        if (d != null) {
+            d.onError(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        Flow.Subscriber<? super PayStationUpdate> d = downstream;
+        if (d != null) {
+            d.onComplete();
+        }
+    }
+}
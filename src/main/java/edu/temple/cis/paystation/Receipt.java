@@ -2,6 +2,7 @@
  * The receipt returned from a pay station. Responsibilities:
  *
  * 1) Know the minutes parking time the receipt represents
+ * 2) Know when and by which station it was issued
  *
  * This source code is from the book "Flexible, Reliable Software: Using
  * Patterns and Agile Development" published 2010 by CRC Press. Author: Henrik B
@@ -21,4 +22,23 @@ public interface Receipt {
      * @return number of minutes parking time
      */
     public int value();
+
+    /**
+     * Return the time the receipt was issued, in whole seconds.
+     *
+     * @return milliseconds since the epoch, truncated to the second; 0 if
+     * unknown
+     */
+    public default long issuedAt() {
+        return 0;
+    }
+
+    /**
+     * Return the ID of the pay station that issued the receipt.
+     *
+     * @return the station ID, 0 if the station has none
+     */
+    public default int stationId() {
+        return 0;
+    }
 }
@@ -1,6 +1,10 @@
 /**
  * Implementation of Receipt.
  *
+ * Next to the minutes, a receipt keeps the issue time in seconds (32 bits,
+ * unsigned) and the station ID (32 bits) together in a single long rather
+ * than in fields of their own. Receipts issued before 1970 or after 2106
+ * are kept in a plain object instead.
  *
  * This source code is from the book "Flexible, Reliable Software: Using
  * Patterns and Agile Development" published 2010 by CRC Press. Author: Henrik B
@@ -14,14 +18,93 @@ package edu.temple.cis.paystation;
 
 public class ReceiptImpl implements Receipt {
 
-    private int value;
+    private final long stamp;
+    private final int value;
 
-    public ReceiptImpl(int value) {
+    private ReceiptImpl(int value, long stamp) {
         this.value = value;
+        this.stamp = stamp;
+    }
+
+    /**
+     * A receipt without station ID or issue time.
+     *
+     * @param value the minutes of parking time
+     * @deprecated use of(int)
+     */
+    @Deprecated
+    public ReceiptImpl(int value) {
+        this(value, 0);
+    }
+
+    /**
+     * Get a receipt without station ID or issue time.
+     *
+     * @param value the minutes of parking time
+     * @return the receipt
+     */
+    public static Receipt of(int value) {
+        return new ReceiptImpl(value, 0);
+    }
+
+    /**
+     * Get a receipt.
+     *
+     * @param value the minutes of parking time
+     * @param issuedAt the issue time in milliseconds since the epoch
+     * @param stationId the ID of the issuing station
+     * @return the receipt
+     */
+    public static Receipt of(int value, long issuedAt, int stationId) {
+        long seconds = issuedAt / 1000;
+        if ((seconds & ~0xFFFFFFFFL) != 0) {
+            return new WideReceipt(value, seconds * 1000, stationId);
+        }
+        return new ReceiptImpl(value, seconds << 32 | stationId & 0xFFFFFFFFL);
     }
 
     @Override
     public int value() {
         return value;
     }
+
+    @Override
+    public long issuedAt() {
+        return (stamp >>> 32) * 1000;
+    }
+
+    @Override
+    public int stationId() {
+        return (int) stamp;
+    }
+
+    /*
+     * Receipt with an issue time outside the encoding.
+     */
+    private static final class WideReceipt implements Receipt {
+
+        private final int value, stationId;
+        private final long issuedAt;
+
+        WideReceipt(int value, long issuedAt, int stationId) {
+            this.value = value;
+            this.issuedAt = issuedAt;
+            this.stationId = stationId;
+        }
+
+        @Override
+        public int value() {
+            return value;
+        }
+
+        @Override
+        public long issuedAt() {
+            return issuedAt;
+        }
+
+        @Override
+        public int stationId() {
+            return stationId;
+        }
+    }
 }
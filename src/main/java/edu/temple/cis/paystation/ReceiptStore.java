@@ -0,0 +1,248 @@
+/**
+ * Keeps the receipts issued by pay stations until they expire.
+ *
+ * Responsibilities:
+ *
+ * 1) Store the issue time, expiry, station ID and minutes of receipts;
+ * 2) Find the receipts valid at a time;
+ * 3) Find the receipts expiring within some minutes;
+ * 4) Reclaim the rows of expired receipts.
+ *
+ * The columns are direct byte buffers, so rows cost no objects and the
+ * garbage collector never scans them. The rows are indexed by expiry in a
+ * hashed timing wheel: each bucket of the wheel holds the rows expiring in
+ * one minute, linked through a column of row numbers. A query walks only
+ * the buckets of the minutes it covers. Adding a receipt first reclaims
+ * the buckets the clock has passed; their rows go on a free list that is
+ * linked through the same column and are reused before the columns grow.
+ *
+ * Receipts may be added in any order of issue time. Receipts selling no
+ * time, or expired before the time already reclaimed, are not stored.
+ */
+package edu.temple.cis.paystation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public class ReceiptStore {
+
+    // Width of a bucket of the timing wheel
+    public static final long BUCKET_MILLIS = 60 * 1000;
+    // Number of buckets; rows expiring further apart than this share buckets
+    public static final int WHEEL_SIZE = 4096;
+
+    private static final int NONE = -1;
+
+    /**
+     * Receives the rows found by a query.
+     */
+    public interface RowHandler {
+
+        public void row(long issuedAt, long expiresAt, int stationId, int minutes);
+    }
+
+    // The columns, one value per row
+    private ByteBuffer issuedAt, expiresAt, stationIds, minutes;
+    // Next row in the same bucket or in the free list
+    private ByteBuffer next;
+    private int capacity;
+    // Rows ever used; rows from here on have never held a receipt
+    private int used;
+    private int size;
+    private int free = NONE;
+    // First row of each bucket
+    private final int[] buckets = new int[WHEEL_SIZE];
+    // Minute up to which expired rows have been reclaimed
+    private long reclaimedMinute = Long.MIN_VALUE;
+
+    /**
+     * @param initialCapacity the number of rows to allocate at first; the
+     * columns double when full
+     */
+    public ReceiptStore(int initialCapacity) {
+        Arrays.fill(buckets, NONE);
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * Store a receipt.
+     *
+     * @param receipt the receipt to store
+     */
+    public void add(Receipt receipt) {
+        add(receipt.issuedAt(), receipt.stationId(), receipt.value());
+    }
+
+    /**
+     * Store a receipt, reclaiming the receipts expired at its issue time.
+     *
+     * @param issuedAt the issue time in milliseconds since the epoch
+     * @param stationId the station issuing the receipt
+     * @param minutes the parking time bought
+     */
+    public synchronized void add(long issuedAt, int stationId, int minutes) {
+        if (minutes <= 0) {
+            return;
+        }
+        reclaim(issuedAt);
+        long expiry = issuedAt + minutes * 60000L;
+        if (expiry <= (reclaimedMinute + 1) * BUCKET_MILLIS) {
+            // Expired before the time already reclaimed
+            return;
+        }
+
+        int row;
+        if (free != NONE) {
+            row = free;
+            free = next.getInt(row * 4);
+        } else {
+            if (used == capacity) {
+                allocate(capacity * 2);
+            }
+            row = used++;
+        }
+        this.issuedAt.putLong(row * 8, issuedAt);
+        this.expiresAt.putLong(row * 8, expiry);
+        this.stationIds.putInt(row * 4, stationId);
+        this.minutes.putInt(row * 4, minutes);
+
+        int bucket = bucketOf(Math.floorDiv(expiry - 1, BUCKET_MILLIS));
+        next.putInt(row * 4, buckets[bucket]);
+        buckets[bucket] = row;
+        size++;
+    }
+
+    /**
+     * Find the receipts valid at a time: issued at or before it and
+     * expiring after it. Receipts already reclaimed are not found.
+     *
+     * @param time the time in milliseconds since the epoch
+     * @param handler receives the rows found
+     * @return the number of rows found
+     */
+    public synchronized int validAt(long time, RowHandler handler) {
+        return scan(time, Long.MAX_VALUE, time, handler);
+    }
+
+    /**
+     * Find the receipts valid now that expire within some minutes.
+     *
+     * @param now the current time in milliseconds since the epoch
+     * @param minutes the length of the period
+     * @param handler receives the rows found
+     * @return the number of rows found
+     */
+    public synchronized int expiringWithin(long now, int minutes, RowHandler handler) {
+        return scan(now, now + minutes * 60000L, now, handler);
+    }
+
+    /*
+     * Visit the rows issued at or before issuedBy whose expiry is after from
+     * and at or before to.
+     */
+    private int scan(long from, long to, long issuedBy, RowHandler handler) {
+        long firstMinute = Math.floorDiv(from, BUCKET_MILLIS);
+        long lastMinute = to == Long.MAX_VALUE
+                ? firstMinute + WHEEL_SIZE - 1
+                : Math.min(Math.floorDiv(to - 1, BUCKET_MILLIS), firstMinute + WHEEL_SIZE - 1);
+        int found = 0;
+        for (long minute = firstMinute; minute <= lastMinute; minute++) {
+            for (int row = buckets[bucketOf(minute)]; row != NONE; row = next.getInt(row * 4)) {
+                long expiry = expiresAt.getLong(row * 8);
+                long issued = issuedAt.getLong(row * 8);
+                if (expiry > from && expiry <= to && issued <= issuedBy) {
+                    found++;
+                    if (handler != null) {
+                        handler.row(issued, expiry, stationIds.getInt(row * 4),
+                                this.minutes.getInt(row * 4));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reclaim the rows of the receipts expired at a time. Adding a receipt
+     * does this up to its issue time, so it only needs to be called when
+     * no receipts are added for a while.
+     *
+     * @param now the time in milliseconds since the epoch
+     * @return the number of rows reclaimed
+     */
+    public synchronized int reclaim(long now) {
+        // Buckets of minutes that ended at or before now
+        long lastMinute = Math.floorDiv(now, BUCKET_MILLIS) - 1;
+        if (reclaimedMinute == Long.MIN_VALUE) {
+            reclaimedMinute = lastMinute;
+            return 0;
+        }
+        if (lastMinute <= reclaimedMinute) {
+            return 0;
+        }
+        long firstMinute = Math.max(reclaimedMinute + 1, lastMinute - WHEEL_SIZE + 1);
+        int reclaimed = 0;
+        for (long minute = firstMinute; minute <= lastMinute; minute++) {
+            int bucket = bucketOf(minute);
+            int previous = NONE;
+            int row = buckets[bucket];
+            while (row != NONE) {
+                int following = next.getInt(row * 4);
+                if (expiresAt.getLong(row * 8) <= now) {
+                    if (previous == NONE) {
+                        buckets[bucket] = following;
+                    } else {
+                        next.putInt(previous * 4, following);
+                    }
+                    next.putInt(row * 4, free);
+                    free = row;
+                    reclaimed++;
+                } else {
+                    previous = row;
+                }
+                row = following;
+            }
+        }
+        reclaimedMinute = lastMinute;
+        size -= reclaimed;
+        return reclaimed;
+    }
+
+    /**
+     * @return the number of receipts stored
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of rows the columns have room for
+     */
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    private static int bucketOf(long minute) {
+        return (int) Math.floorMod(minute, (long) WHEEL_SIZE);
+    }
+
+    private void allocate(int rows) {
+        issuedAt = grow(issuedAt, rows * 8);
+        expiresAt = grow(expiresAt, rows * 8);
+        stationIds = grow(stationIds, rows * 4);
+        minutes = grow(minutes, rows * 4);
+        next = grow(next, rows * 4);
+        capacity = rows;
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int bytes) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        if (column != null) {
+            column.clear();
+            grown.put(column);
+            grown.clear();
+        }
+        return grown;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Adds up the revenue of a fleet of pay stations in parallel.
+ *
+ * The rows are split in halves on a fork/join pool until a part is small
+ * enough. Each part is added into the report of the thread running it, so
+ * there are only as many reports as threads, however many parts, and they
+ * are merged once at the end. The totals per station and hour are indexed
+ * by the numbers FleetRecords gives the stations and hours, so a report
+ * takes memory for the stations and hours seen, not for the largest station
+ * ID or the whole time range.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class RevenueAggregator {
+
+    // Rows added up by one task without splitting further
+    static final int THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public RevenueAggregator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public RevenueAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Add up the revenue of all rows.
+     *
+     * @param records the rows
+     * @return the revenue per town, hour and station
+     */
+    public RevenueReport aggregate(FleetRecords records) {
+        long firstHour = records.size() == 0 ? 0
+                : Math.floorDiv(records.minTimestamp(), RevenueReport.MILLIS_PER_HOUR);
+        // Copied so rows added meanwhile do not change the numbering
+        Sums sums = new Sums(records.denominations(), firstHour, records.hours().copy(),
+                records.stations().copy());
+        pool.invoke(new AggregateTask(records, sums, 0, records.size()));
+        return sums.merged();
+    }
+
+    /*
+     * The report of each thread adding up rows in one aggregate() call.
+     */
+    private static final class Sums {
+
+        private final int[] denominations;
+        private final long firstHour;
+        private final FleetRecords.Ids hours, stations;
+        private final Map<Thread, RevenueReport> reports = new ConcurrentHashMap<>();
+
+        Sums(int[] denominations, long firstHour, FleetRecords.Ids hours,
+                FleetRecords.Ids stations) {
+            this.denominations = denominations;
+            this.firstHour = firstHour;
+            this.hours = hours;
+            this.stations = stations;
+        }
+
+        /*
+         * The report of the current thread; only that thread adds to it.
+         */
+        RevenueReport ofThread() {
+            return reports.computeIfAbsent(Thread.currentThread(),
+                    thread -> new RevenueReport(denominations, firstHour, hours, stations));
+        }
+
+        /*
+         * All reports added up; called once all tasks are done.
+         */
+        RevenueReport merged() {
+            RevenueReport total = null;
+            for (RevenueReport report : reports.values()) {
+                if (total == null) {
+                    total = report;
+                } else {
+                    total.merge(report);
+                }
+            }
+            return total != null ? total
+                    : new RevenueReport(denominations, firstHour, hours, stations);
+        }
+    }
+
+    private static class AggregateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FleetRecords records;
+        private final transient Sums sums;
+        private final int from, to;
+
+        AggregateTask(FleetRecords records, Sums sums, int from, int to) {
+            this.records = records;
+            this.sums = sums;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                sum();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AggregateTask(records, sums, from, middle),
+                    new AggregateTask(records, sums, middle, to));
+        }
+
+        private void sum() {
+            RevenueReport report = sums.ofThread();
+            int d = sums.denominations.length;
+            for (int row = from; row < to; row++) {
+                int town = records.town(row);
+                int hour = records.hourIndex(row);
+                int station = records.stationIndex(row);
+                long cents = records.cents(row);
+                long minutes = records.minutes(row);
+                report.townCents[town] += cents;
+                report.townMinutes[town] += minutes;
+                report.hourCents[hour] += cents;
+                report.hourMinutes[hour] += minutes;
+                report.stationCents[station] += cents;
+                report.stationMinutes[station] += minutes;
+                for (int c = 0; c < d; c++) {
+                    report.townCoins[town * d + c] += records.coins(row, c);
+                }
+            }
+        }
+    }
+}
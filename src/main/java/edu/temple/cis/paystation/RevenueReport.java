@@ -0,0 +1,133 @@
+/**
+ * Revenue of a fleet of pay stations, broken down by town, hour and
+ * station. All totals are longs, so they do not overflow however many sales
+ * are added up. Totals per hour and station are kept only for the hours and
+ * stations that have sales.
+ */
+package edu.temple.cis.paystation;
+
+public class RevenueReport {
+
+    static final long MILLIS_PER_HOUR = 3600 * 1000;
+
+    private final int[] denominations;
+    private final long firstHour;
+    // The numbers of the hours and stations in the arrays below
+    private final FleetRecords.Ids hours, stations;
+    final long[] townCents, townMinutes;
+    // Town.values().length rows of denominations.length counts
+    final long[] townCoins;
+    final long[] hourCents, hourMinutes;
+    final long[] stationCents, stationMinutes;
+
+    RevenueReport(int[] denominations, long firstHour, FleetRecords.Ids hours,
+            FleetRecords.Ids stations) {
+        this.denominations = denominations;
+        this.firstHour = firstHour;
+        this.hours = hours;
+        this.stations = stations;
+        int towns = Town.values().length;
+        townCents = new long[towns];
+        townMinutes = new long[towns];
+        townCoins = new long[towns * denominations.length];
+        hourCents = new long[hours.size()];
+        hourMinutes = new long[hours.size()];
+        stationCents = new long[stations.size()];
+        stationMinutes = new long[stations.size()];
+    }
+
+    /*
+     * Add the totals of another report over the same fleet to this one.
+     */
+    void merge(RevenueReport other) {
+        add(townCents, other.townCents);
+        add(townMinutes, other.townMinutes);
+        add(townCoins, other.townCoins);
+        add(hourCents, other.hourCents);
+        add(hourMinutes, other.hourMinutes);
+        add(stationCents, other.stationCents);
+        add(stationMinutes, other.stationMinutes);
+    }
+
+    private static void add(long[] into, long[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += from[i];
+        }
+    }
+
+    public long totalCents() {
+        long total = 0;
+        for (long c : townCents) {
+            total += c;
+        }
+        return total;
+    }
+
+    public long totalMinutes() {
+        long total = 0;
+        for (long m : townMinutes) {
+            total += m;
+        }
+        return total;
+    }
+
+    public long cents(Town town) {
+        return townCents[town.ordinal()];
+    }
+
+    public long minutes(Town town) {
+        return townMinutes[town.ordinal()];
+    }
+
+    /**
+     * @param town the town
+     * @param coinValue the coin in cent
+     * @return the number of such coins paid in the town
+     */
+    public long coins(Town town, int coinValue) {
+        for (int d = 0; d < denominations.length; d++) {
+            if (denominations[d] == coinValue) {
+                return townCoins[town.ordinal() * denominations.length + d];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the first hour of the report, in hours since the epoch
+     */
+    public long firstHour() {
+        return firstHour;
+    }
+
+    /**
+     * @return the number of hours with sales
+     */
+    public int hours() {
+        return hourCents.length;
+    }
+
+    /**
+     * @param epochHour the hour, in hours since the epoch
+     * @return the money collected in that hour
+     */
+    public long centsInHour(long epochHour) {
+        int h = hours.indexOf(epochHour);
+        return h < 0 ? 0 : hourCents[h];
+    }
+
+    public long minutesInHour(long epochHour) {
+        int h = hours.indexOf(epochHour);
+        return h < 0 ? 0 : hourMinutes[h];
+    }
+
+    public long cents(int stationId) {
+        int s = stations.indexOf(stationId);
+        return s < 0 ? 0 : stationCents[s];
+    }
+
+    public long minutes(int stationId) {
+        int s = stations.indexOf(stationId);
+        return s < 0 ? 0 : stationMinutes[s];
+    }
+}
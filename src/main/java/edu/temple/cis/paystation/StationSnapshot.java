@@ -0,0 +1,137 @@
+/**
+ * The state of a pay station at a position in its journal.
+ *
+ * A station with a journal saves a snapshot every so many events. When it
+ * starts again it loads the snapshot and only replays the journal records
+ * after it, so startup stays fast however long the journal gets.
+ *
+ * Binary layout, big endian:
+ *
+ *   int   magic "PSS2"
+ *   long  journal position: the number of the first record not included
+ *   int   station ID
+ *   int   insertedSoFar
+ *   long  totalMoney
+ *   int   number of coin entries, followed by that many pairs of
+ *   int   coin value in cent and
+ *   int   number of such coins inserted, as returned by cancel()
+ *
+ * Snapshots written before totalMoney became a long have the magic "PSS1"
+ * and an int totalMoney; they are still read.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StationSnapshot {
+
+    public static final String FILE_NAME = "snapshot.bin";
+
+    private static final int MAGIC = 0x50535332;
+    private static final int MAGIC_INT_MONEY = 0x50535331;
+
+    private final long position;
+    private final int stationId, insertedSoFar;
+    private final long totalMoney;
+    private final Map<Integer, Integer> coins;
+
+    public StationSnapshot(long position, int stationId, int insertedSoFar, long totalMoney,
+            Map<Integer, Integer> coins) {
+        this.position = position;
+        this.stationId = stationId;
+        this.insertedSoFar = insertedSoFar;
+        this.totalMoney = totalMoney;
+        this.coins = Collections.unmodifiableMap(new LinkedHashMap<>(coins));
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public int getInsertedSoFar() {
+        return insertedSoFar;
+    }
+
+    public long getTotalMoney() {
+        return totalMoney;
+    }
+
+    public Map<Integer, Integer> getCoins() {
+        return coins;
+    }
+
+    /**
+     * Write the snapshot. It is written to a temporary file and forced to
+     * disk before it replaces the file in one step, so a crash while
+     * writing leaves the previous snapshot intact, never an empty or torn
+     * one.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeLong(position);
+            out.writeInt(stationId);
+            out.writeInt(insertedSoFar);
+            out.writeLong(totalMoney);
+            out.writeInt(coins.size());
+            for (Map.Entry<Integer, Integer> coin : coins.entrySet()) {
+                out.writeInt(coin.getKey());
+                out.writeInt(coin.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file the snapshot file
+     * @return the snapshot, or null if there is none
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static StationSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != MAGIC_INT_MONEY) {
+                throw new IOException("Not a pay station snapshot: " + file);
+            }
+            long position = in.readLong();
+            int stationId = in.readInt();
+            int insertedSoFar = in.readInt();
+            long totalMoney = magic == MAGIC ? in.readLong() : in.readInt();
+            int count = in.readInt();
+            Map<Integer, Integer> coins = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                coins.put(in.readInt(), in.readInt());
+            }
+            return new StationSnapshot(position, stationId, insertedSoFar, totalMoney, coins);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
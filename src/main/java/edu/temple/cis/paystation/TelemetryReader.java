@@ -0,0 +1,166 @@
+/**
+ * Decodes the telemetry frames written by TelemetryWriter.
+ *
+ * Responsibilities:
+ *
+ * 1) Check and read a frame from a buffer;
+ * 2) Pass its transactions, receipts and station states to a handler.
+ *
+ * Uncompressed frames are decoded in place. Compressed frames are
+ * inflated into a buffer kept from frame to frame.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+public class TelemetryReader {
+
+    /**
+     * Receives the records of a frame.
+     */
+    public interface FrameHandler extends TransactionJournal.RecordHandler {
+
+        public void receipt(long issuedAt, int stationId, int minutes);
+
+        public void state(long timestamp, int display, StationSnapshot state);
+    }
+
+    private final Inflater inflater = new Inflater();
+    private ByteBuffer inflated = ByteBuffer.allocate(4096);
+    private long lastTimestamp;
+    private int lastStationId;
+
+    /**
+     * Read one frame from the position of a buffer. The position is moved
+     * past the frame.
+     *
+     * @param in the buffer holding the frame
+     * @param handler receives the records of the frame
+     * @return the number of records in the frame
+     * @throws IOException if the buffer does not hold a whole frame
+     */
+    public int read(ByteBuffer in, FrameHandler handler) throws IOException {
+        try {
+            if (in.get() != TelemetryWriter.MAGIC) {
+                throw new IOException("Not a telemetry frame");
+            }
+            int flags = in.get();
+            int count = getVarInt(in);
+            int length = getVarInt(in);
+
+            ByteBuffer records;
+            if ((flags & TelemetryWriter.FLAG_COMPRESSED) != 0) {
+                int compressed = in.getInt();
+                records = inflate(in, compressed, length);
+            } else {
+                records = in.slice();
+                records.limit(length);
+                in.position(in.position() + length);
+            }
+
+            lastTimestamp = 0;
+            lastStationId = 0;
+            for (int i = 0; i < count; i++) {
+                readRecord(records, handler);
+            }
+            return count;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated telemetry frame", e);
+        }
+    }
+
+    private ByteBuffer inflate(ByteBuffer in, int compressed, int length) throws IOException {
+        if (inflated.capacity() < length) {
+            inflated = ByteBuffer.allocate(Math.max(length, inflated.capacity() * 2));
+        }
+        inflated.clear();
+        inflated.limit(length);
+        ByteBuffer input = in.slice();
+        input.limit(compressed);
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            while (inflated.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(inflated) == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated compressed telemetry frame");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed telemetry frame", e);
+        }
+        in.position(in.position() + compressed);
+        inflated.flip();
+        return inflated;
+    }
+
+    private void readRecord(ByteBuffer records, FrameHandler handler) throws IOException {
+        int tag = records.get();
+        lastTimestamp += unzigzag(getVarLong(records));
+        int delta = getVarInt(records);
+        lastStationId += delta >>> 1 ^ -(delta & 1);
+
+        switch (tag) {
+            case TelemetryWriter.TAG_RECEIPT:
+                handler.receipt(lastTimestamp, lastStationId, getVarInt(records));
+                break;
+            case TelemetryWriter.TAG_STATE:
+                long position = getVarLong(records);
+                int display = getVarInt(records);
+                int insertedSoFar = getVarInt(records);
+                long totalMoney = getVarLong(records);
+                int kinds = getVarInt(records);
+                Map<Integer, Integer> coins = new LinkedHashMap<>();
+                for (int i = 0; i < kinds; i++) {
+                    coins.put(getVarInt(records), getVarInt(records));
+                }
+                handler.state(lastTimestamp, display, new StationSnapshot(position,
+                        lastStationId, insertedSoFar, totalMoney, coins));
+                break;
+            case TransactionJournal.BUY:
+            case TransactionJournal.CANCEL:
+            case TransactionJournal.EMPTY:
+            case TransactionJournal.COIN:
+            case TransactionJournal.REJECTED:
+            case TransactionJournal.REFUSED:
+                int cents = getVarInt(records);
+                handler.record(lastTimestamp, lastStationId, tag, cents, getVarInt(records));
+                break;
+            default:
+                throw new IOException("Unknown telemetry record: " + tag);
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    static int getVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
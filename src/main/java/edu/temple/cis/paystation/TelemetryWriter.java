@@ -0,0 +1,205 @@
+/**
+ * Encodes pay station telemetry into compact frames for the backend.
+ *
+ * Responsibilities:
+ *
+ * 1) Collect transactions, receipts and station states into a frame;
+ * 2) Write the frame into a caller's buffer, compressed if asked.
+ *
+ * Numbers are written as varints: 7 bits a byte, the high bit set on all
+ * but the last byte. Time stamps and station IDs are written as the
+ * zigzag-encoded difference from the record before, so a record of a busy
+ * station is typically 5 or 6 bytes. The frame is built in a buffer that
+ * is kept from frame to frame and only grows, so encoding allocates
+ * nothing once it is large enough.
+ *
+ * A frame is: the MAGIC byte, a flags byte, the number of records and the
+ * length of the records as varints, then the records. A compressed frame
+ * has the length of the compressed records as a 4 byte int before them.
+ * Each record starts with a tag: a TransactionJournal record type, or
+ * TAG_RECEIPT or TAG_STATE. See TelemetryReader for decoding.
+ *
+ * Writing a journal into frames is a replay with the writer as handler.
+ */
+package edu.temple.cis.paystation;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+public class TelemetryWriter implements TransactionJournal.RecordHandler {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final int FLAG_COMPRESSED = 1;
+    public static final int TAG_RECEIPT = 16;
+    public static final int TAG_STATE = 17;
+
+    // Records shorter than this are not worth compressing
+    private static final int MIN_COMPRESSED = 64;
+    // Longest record without coins: tag, time stamp, station and two ints
+    private static final int MAX_RECORD = 1 + 10 + 5 + 5 + 5;
+
+    private ByteBuffer records;
+    // Null when frames are not compressed
+    private final Deflater deflater;
+    private int count;
+    private long lastTimestamp;
+    private int lastStationId;
+
+    /**
+     * @param initialCapacity the bytes of records a frame holds at first;
+     * the buffer grows when needed
+     * @param compress true to compress frames with deflate
+     */
+    public TelemetryWriter(int initialCapacity, boolean compress) {
+        this.records = ByteBuffer.allocate(Math.max(initialCapacity, MAX_RECORD));
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    }
+
+    @Override
+    public void record(long timestamp, int stationId, int type, int cents, int minutes) {
+        ensure(MAX_RECORD);
+        records.put((byte) type);
+        putHeader(timestamp, stationId);
+        putVarInt(records, cents);
+        putVarInt(records, minutes);
+        count++;
+    }
+
+    /**
+     * Add a receipt to the frame.
+     *
+     * @param receipt the receipt issued
+     */
+    public void receipt(Receipt receipt) {
+        ensure(MAX_RECORD);
+        records.put((byte) TAG_RECEIPT);
+        putHeader(receipt.issuedAt(), receipt.stationId());
+        putVarInt(records, receipt.value());
+        count++;
+    }
+
+    /**
+     * Add the state of a station to the frame.
+     *
+     * @param timestamp the time the state was taken
+     * @param display the time shown on the display
+     * @param state the money and coins of the station
+     */
+    public void state(long timestamp, int display, StationSnapshot state) {
+        Map<Integer, Integer> coins = state.getCoins();
+        ensure(MAX_RECORD + 10 + 5 + 5 + 10 + coins.size() * 10);
+        records.put((byte) TAG_STATE);
+        putHeader(timestamp, state.getStationId());
+        putVarLong(records, state.getPosition());
+        putVarInt(records, display);
+        putVarInt(records, state.getInsertedSoFar());
+        putVarLong(records, state.getTotalMoney());
+        putVarInt(records, coins.size());
+        for (Map.Entry<Integer, Integer> coin : coins.entrySet()) {
+            putVarInt(records, coin.getKey());
+            putVarInt(records, coin.getValue());
+        }
+        count++;
+    }
+
+    /**
+     * @return the number of records in the frame
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the bytes of records in the frame, before compression
+     */
+    public int size() {
+        return records.position();
+    }
+
+    /**
+     * Write the frame and start a new one.
+     *
+     * @param out the buffer to write the frame into, from its position
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the frame does not fit in out; out
+     * and the frame are left as they were
+     */
+    public int finish(ByteBuffer out) {
+        int start = out.position();
+        records.flip();
+        try {
+            out.put(MAGIC);
+            if (deflater != null && records.remaining() >= MIN_COMPRESSED) {
+                out.put((byte) FLAG_COMPRESSED);
+                putVarInt(out, count);
+                putVarInt(out, records.remaining());
+                int lengthAt = out.position();
+                out.putInt(0);
+                deflater.reset();
+                deflater.setInput(records);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (!out.hasRemaining()) {
+                        throw new BufferOverflowException();
+                    }
+                    deflater.deflate(out);
+                }
+                out.putInt(lengthAt, out.position() - lengthAt - 4);
+            } else {
+                out.put((byte) 0);
+                putVarInt(out, count);
+                putVarInt(out, records.remaining());
+                out.put(records);
+            }
+        } catch (BufferOverflowException e) {
+            out.position(start);
+            records.position(records.limit());
+            records.limit(records.capacity());
+            throw e;
+        }
+        records.clear();
+        count = 0;
+        lastTimestamp = 0;
+        lastStationId = 0;
+        return out.position() - start;
+    }
+
+    private void putHeader(long timestamp, int stationId) {
+        putVarLong(records, zigzag(timestamp - lastTimestamp));
+        putVarInt(records, (stationId - lastStationId) << 1 ^ (stationId - lastStationId) >> 31);
+        lastTimestamp = timestamp;
+        lastStationId = stationId;
+    }
+
+    private void ensure(int bytes) {
+        if (records.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(records.capacity() * 2,
+                    records.position() + bytes));
+            records.flip();
+            grown.put(records);
+            records = grown;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Reads the numbers typed on a terminal.
+ *
+ * Responsibilities:
+ *
+ * 1) Read the terminal in blocks into a buffer;
+ * 2) Parse whitespace separated numbers straight from the bytes;
+ * 3) Flush the terminal output before waiting for input.
+ *
+ * Numbers are parsed without making strings, so reading a token costs no
+ * garbage. A token that is not a number, or does not fit an int, reads as
+ * -1, which no menu accepts.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class TerminalInput {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Flushed before waiting for input; may be null
+    private final TerminalOutput output;
+
+    public TerminalInput(ReadableByteChannel channel, TerminalOutput output) {
+        this(channel, output, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param channel the terminal to read from
+     * @param output the output to flush before waiting for input, or null
+     * @param capacity the bytes read at most at once
+     */
+    public TerminalInput(ReadableByteChannel channel, TerminalOutput output, int capacity) {
+        this.channel = channel;
+        this.output = output;
+        this.buffer = ByteBuffer.allocate(capacity);
+        buffer.flip();
+    }
+
+    /**
+     * Read the next whitespace separated number.
+     *
+     * @return the number, or -1 if the token is not a number
+     * @throws EOFException if the input ends before a token
+     * @throws IOException if the terminal cannot be read
+     */
+    public int nextInt() throws IOException {
+        int b;
+        do {
+            b = next();
+            if (b < 0) {
+                throw new EOFException("End of input");
+            }
+        } while (isSpace(b));
+
+        boolean negative = b == '-';
+        if (negative) {
+            b = next();
+        }
+        long value = 0;
+        boolean valid = b >= '0' && b <= '9';
+        while (b >= 0 && !isSpace(b)) {
+            if (b >= '0' && b <= '9' && value <= Integer.MAX_VALUE) {
+                value = value * 10 + (b - '0');
+            } else {
+                valid = false;
+            }
+            b = next();
+        }
+        if (!valid || value > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static boolean isSpace(int b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /*
+     * The next byte, or -1 at the end of the input.
+     */
+    private int next() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (output != null) {
+                output.flush();
+            }
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                return -1;
+            }
+        }
+        // Unsigned, so a byte of 0x80 or above is not taken for the end
+        return buffer.get() & 0xFF;
+    }
+}
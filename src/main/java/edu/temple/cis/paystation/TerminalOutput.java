@@ -0,0 +1,105 @@
+/**
+ * Batches the text shown on a terminal.
+ *
+ * Responsibilities:
+ *
+ * 1) Render text and numbers into a buffer;
+ * 2) Write the buffer to the terminal in one go when flushed.
+ *
+ * Nothing is written until flush() is called, or the buffer is full. A
+ * TerminalInput flushes its output before it waits for input, so a screen
+ * of prompts costs one write however many lines it has. Text is written as
+ * ASCII; other characters are shown as '?'.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class TerminalOutput {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Digits of a number, rendered backwards
+    private final byte[] digits = new byte[11];
+    private long flushes;
+
+    public TerminalOutput(WritableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param channel the terminal to write to
+     * @param capacity the bytes kept before they must be written
+     */
+    public TerminalOutput(WritableByteChannel channel, int capacity) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    public TerminalOutput print(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            char c = text.charAt(i);
+            buffer.put(c < 128 ? (byte) c : (byte) '?');
+        }
+        return this;
+    }
+
+    public TerminalOutput print(int number) throws IOException {
+        if (buffer.remaining() < digits.length) {
+            flush();
+        }
+        long n = number;
+        if (n < 0) {
+            buffer.put((byte) '-');
+            n = -n;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + n % 10);
+            n /= 10;
+        } while (n > 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+        return this;
+    }
+
+    public TerminalOutput println(String text) throws IOException {
+        return print(text).println();
+    }
+
+    public TerminalOutput println() throws IOException {
+        return print("\n");
+    }
+
+    /**
+     * Write everything rendered since the last flush.
+     *
+     * @throws IOException if the terminal cannot be written
+     */
+    public void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        flushes++;
+    }
+
+    /**
+     * @return the number of writes to the terminal so far
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+}
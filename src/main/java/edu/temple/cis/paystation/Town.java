@@ -0,0 +1,62 @@
+/**
+ * The towns the pay station is sold to and the rate each of them uses.
+ */
+package edu.temple.cis.paystation;
+
+import java.time.Clock;
+
+public enum Town {
+    ALPHA_TOWN("AlphaTown"),
+    BETA_TOWN("BetaTown"),
+    GAMMA_TOWN("GammaTown"),
+    DELTA_TOWN("DeltaTown"),
+    OMEGA_TOWN("OmegaTown");
+
+    private final String displayName;
+
+    Town(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+
+    /**
+     * Create the rate strategy of this town, following the system clock in
+     * the default time zone.
+     *
+     * @return the town's rate strategy
+     */
+    public RateStrategy rateStrategy() {
+        return rateStrategy(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Create the rate strategy of this town. Linear and progressive rates
+     * are precomputed.
+     *
+     * @param clock the clock deciding the day of the week, for towns with
+     * different weekday and weekend rates
+     * @return the town's rate strategy
+     */
+    public RateStrategy rateStrategy(Clock clock) {
+        switch (this) {
+            case BETA_TOWN:
+                return new PrecomputedRateStrategy(new ProgressiveRateStrategy());
+            case GAMMA_TOWN:
+                return RateSchedule.weekend(clock,
+                        new PrecomputedRateStrategy(new ProgressiveRateStrategy()),
+                        new PrecomputedRateStrategy(new LinearRateStrategy(2)));
+            case DELTA_TOWN:
+                return new PrecomputedRateStrategy(new LinearRateStrategy(1));
+            case OMEGA_TOWN:
+                // Parking is free on weekends, so no time is sold
+                return RateSchedule.weekend(clock,
+                        new PrecomputedRateStrategy(new LinearRateStrategy(2)),
+                        new LinearRateStrategy(0));
+            default:
+                return new PrecomputedRateStrategy(new LinearRateStrategy(2));
+        }
+    }
+}
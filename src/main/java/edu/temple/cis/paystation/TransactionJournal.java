@@ -0,0 +1,318 @@
+/**
+ * Append-only journal of the transactions of a pay station.
+ *
+ * Responsibilities:
+ *
+ * 1) Record every coin, buy, cancel and empty as a fixed-width binary
+ *    record;
+ * 2) Replay the recorded events, for instance to rebuild the state of the
+ *    station after a crash.
+ *
+ * Records are written into memory-mapped segment files of a fixed size.
+ * Appending is a plain memory write without a system call; the data reaches
+ * the file when the operating system writes the pages back, which survives
+ * a crash of the JVM. To also survive a power loss the segment is forced to
+ * disk when a segment is full, when the journal is closed and otherwise at
+ * most forceIntervalMillis after a record is appended (group commit): by
+ * the append that finds the interval over, or by the flusher when the
+ * station has gone quiet. One daemon flusher thread serves all journals,
+ * checking each of them every force interval.
+ *
+ * Record layout, 24 bytes, big endian:
+ *
+ *   0  long  timestamp in milliseconds since the epoch
+ *   8  int   station ID
+ *   12 int   type: COIN, BUY, CANCEL or EMPTY; 0 marks the free space of a
+ *            segment
+ *   16 int   cents
+ *   20 int   minutes
+ *
+ * Records are numbered from 0 in the order they were appended; position()
+ * gives the number of the next record. The numbering depends on the
+ * segment size, which must not change for an existing journal.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class TransactionJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 24;
+
+    public static final int BUY = 1;
+    public static final int CANCEL = 2;
+    public static final int EMPTY = 3;
+    public static final int COIN = 4;
+    // A coin the station refused; never journaled, only passed to the event
+    // handler of a station
+    public static final int REJECTED = 5;
+    // A good coin refused because parking is free; not journaled either,
+    // and not a sign of fraud like REJECTED
+    public static final int REFUSED = 6;
+
+    // Default segment size: 16 MB, about 700 000 transactions
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_FORCE_INTERVAL_MILLIS = 1000;
+
+    private static final int TYPE_OFFSET = 12;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * Receives the records of the journal when it is replayed.
+     */
+    public interface RecordHandler {
+
+        public void record(long timestamp, int stationId, int type, int cents, int minutes);
+    }
+
+    private final Path directory;
+    private final int stationId;
+    private final int segmentSize;
+    private final int recordsPerSegment;
+    private final long forceIntervalNanos;
+
+    private int segmentNumber;
+    private MappedByteBuffer segment;
+    // Written by the appending thread and the flusher
+    private volatile long lastForce;
+    private volatile boolean dirty;
+    private long forces;
+    // The check of this journal by the flusher; null if every record is forced
+    private final ScheduledFuture<?> flushing;
+
+    /**
+     * Open the journal of a station with the default segment size and force
+     * interval.
+     *
+     * @param directory the directory holding the segment files
+     * @param stationId the ID written into every record
+     * @throws IOException if the journal cannot be opened
+     */
+    public TransactionJournal(Path directory, int stationId) throws IOException {
+        this(directory, stationId, DEFAULT_SEGMENT_SIZE, DEFAULT_FORCE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Open the journal of a station. New records are appended after the
+     * records already in the directory.
+     *
+     * @param directory the directory holding the segment files
+     * @param stationId the ID written into every record
+     * @param segmentSize the size of a segment file in bytes
+     * @param forceIntervalMillis how long records may wait before they are
+     * forced to disk; 0 forces every record
+     * @throws IOException if the journal cannot be opened
+     */
+    public TransactionJournal(Path directory, int stationId, int segmentSize,
+            long forceIntervalMillis) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.stationId = stationId;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.recordsPerSegment = this.segmentSize / RECORD_SIZE;
+        this.forceIntervalNanos = forceIntervalMillis * 1_000_000L;
+        Files.createDirectories(directory);
+
+        List<Path> segments = segments();
+        segmentNumber = segments.isEmpty() ? 0 : segments.size() - 1;
+        segment = map(segmentNumber);
+        // Continue after the last record of the newest segment
+        while (segment.remaining() >= RECORD_SIZE
+                && segment.getInt(segment.position() + TYPE_OFFSET) != 0) {
+            segment.position(segment.position() + RECORD_SIZE);
+        }
+        lastForce = System.nanoTime();
+        if (forceIntervalNanos > 0) {
+            flushing = Flusher.THREAD.scheduleWithFixedDelay(this::flush,
+                    forceIntervalNanos, forceIntervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            flushing = null;
+        }
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of the next record to be appended
+     */
+    public long position() {
+        return (long) segmentNumber * recordsPerSegment + segment.position() / RECORD_SIZE;
+    }
+
+    /**
+     * Append a record to the journal.
+     *
+     * @param type COIN, BUY, CANCEL or EMPTY
+     * @param cents the money of the transaction
+     * @param minutes the parking time of the transaction
+     * @throws IOException if a new segment cannot be created
+     */
+    public void append(int type, int cents, int minutes) throws IOException {
+        if (segment.remaining() < RECORD_SIZE) {
+            roll();
+        }
+        int at = segment.position();
+        segment.putLong(at, System.currentTimeMillis());
+        segment.putInt(at + 8, stationId);
+        segment.putInt(at + 16, cents);
+        segment.putInt(at + 20, minutes);
+        // The type is written last so a half written record is never read
+        segment.putInt(at + TYPE_OFFSET, type);
+        segment.position(at + RECORD_SIZE);
+        // Published after the record, so a flusher that sees it dirty also
+        // sees the record and the segment it is in
+        dirty = true;
+
+        long now = System.nanoTime();
+        if (now - lastForce >= forceIntervalNanos) {
+            force();
+        }
+    }
+
+    /**
+     * Force the records appended so far to disk. May be called from any
+     * thread.
+     */
+    public synchronized void force() {
+        if (dirty) {
+            // Cleared first so a record appended meanwhile is forced later
+            dirty = false;
+            segment.force();
+            forces++;
+        }
+        lastForce = System.nanoTime();
+    }
+
+    /**
+     * @return the times records were forced to disk
+     */
+    public synchronized long getForces() {
+        return forces;
+    }
+
+    /*
+     * Force the records of a quiet station, run by the flusher every force
+     * interval; a busy station forces them in append().
+     */
+    private void flush() {
+        if (dirty) {
+            try {
+                force();
+            } catch (RuntimeException e) {
+                // Thrown on, it would stop the checks of this journal
+                System.err.println("Could not force journal of station " + stationId + ": " + e);
+            }
+        }
+    }
+
+    /*
+     * The thread forcing the journals of quiet stations, started with the
+     * first journal that needs it.
+     */
+    private static final class Flusher {
+
+        static final ScheduledThreadPoolExecutor THREAD = new ScheduledThreadPoolExecutor(1,
+                task -> {
+                    Thread thread = new Thread(task, "journal-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        static {
+            // Closed journals leave no checks behind
+            THREAD.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Hand every record in the journal to a handler, oldest first.
+     *
+     * @param handler receives the records
+     * @throws IOException if a segment cannot be read
+     */
+    public void replay(RecordHandler handler) throws IOException {
+        replay(0, handler);
+    }
+
+    /**
+     * Hand the records from a position on to a handler, oldest first.
+     *
+     * @param from the number of the first record to hand over
+     * @param handler receives the records
+     * @throws IOException if a segment cannot be read
+     */
+    public void replay(long from, RecordHandler handler) throws IOException {
+        List<Path> segments = segments();
+        int first = (int) (from / recordsPerSegment);
+        for (int n = first; n < segments.size(); n++) {
+            MappedByteBuffer buffer = n == segmentNumber ? segment : map(n);
+            int start = n == first ? (int) (from % recordsPerSegment) * RECORD_SIZE : 0;
+            for (int at = start; at + RECORD_SIZE <= buffer.limit(); at += RECORD_SIZE) {
+                int type = buffer.getInt(at + TYPE_OFFSET);
+                if (type == 0) {
+                    break;
+                }
+                handler.record(buffer.getLong(at), buffer.getInt(at + 8), type,
+                        buffer.getInt(at + 16), buffer.getInt(at + 20));
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        force();
+        segmentNumber++;
+        segment = map(segmentNumber);
+    }
+
+    private MappedByteBuffer map(int number) throws IOException {
+        Path file = directory.resolve(String.format("%s%08d%s",
+                SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    @Override
+    public void close() {
+        if (flushing != null) {
+            flushing.cancel(false);
+        }
+        force();
+    }
+}
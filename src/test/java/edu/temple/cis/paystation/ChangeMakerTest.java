@@ -0,0 +1,170 @@
+/*
+ * Testcases for change-making and the coin vault.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ChangeMakerTest {
+
+    /**
+     * Common amounts should be paid with the fewest coins when the
+     * inventory has plenty of them.
+     */
+    @Test
+    public void shouldPayWithFewestCoins() {
+        ChangeMaker maker = new ChangeMaker(Denominations.US_COINS);
+        int[] plenty = {100, 100, 100};
+        assertArrayEquals("40 cents should be a nickel, a dime and a quarter",
+                new int[]{1, 1, 1}, maker.makeChange(40, plenty));
+        assertArrayEquals("30 cents should be a nickel and a quarter",
+                new int[]{1, 0, 1}, maker.makeChange(30, plenty));
+    }
+
+    /**
+     * When the inventory lacks the coins of the best answer, the fewest of
+     * the coins it has should be used.
+     */
+    @Test
+    public void shouldPayFromInventory() {
+        ChangeMaker maker = new ChangeMaker(Denominations.US_COINS);
+        assertArrayEquals("30 cents without quarters should be three dimes",
+                new int[]{0, 3, 0}, maker.makeChange(30, new int[]{10, 10, 0}));
+        assertArrayEquals("30 cents with one dime should be a dime and four nickels",
+                new int[]{4, 1, 0}, maker.makeChange(30, new int[]{10, 1, 0}));
+    }
+
+    /**
+     * An amount that cannot be paid exactly should be paid as far as the
+     * inventory allows.
+     */
+    @Test
+    public void shouldPayLargestPossibleAmount() {
+        ChangeMaker maker = new ChangeMaker(Denominations.US_COINS);
+        assertArrayEquals("Only 35 of 45 cents can be paid",
+                new int[]{0, 1, 1}, maker.makeChange(45, new int[]{0, 1, 1}));
+        assertArrayEquals("Nothing can be paid from an empty inventory",
+                new int[]{0, 0, 0}, maker.makeChange(45, new int[3]));
+    }
+
+    /**
+     * Amounts near the largest int should be paid without a knapsack the
+     * size of the amount.
+     */
+    @Test
+    public void shouldPayHugeAmounts() {
+        ChangeMaker maker = new ChangeMaker(Denominations.US_COINS);
+        assertArrayEquals("More than the inventory should take every coin",
+                new int[]{3, 2, 1}, maker.makeChange(Integer.MAX_VALUE - 5, new int[]{3, 2, 1}));
+
+        int[] inventory = {1000000, 1000000, 1000000};
+        int[] coins = maker.makeChange(30000005, inventory);
+        assertEquals("Large amount should be paid exactly", 30000005,
+                coins[0] * 5 + coins[1] * 10 + coins[2] * 25);
+        for (int slot = 0; slot < coins.length; slot++) {
+            assertTrue("Coins should come from the inventory", coins[slot] <= inventory[slot]);
+        }
+        assertEquals("Inventory should be left as it was", 1000000, inventory[2]);
+    }
+
+    /**
+     * Bills should never be given as change.
+     */
+    @Test
+    public void shouldNotPayBills() {
+        Denominations usd = DenominationRegistry.lookup("USD");
+        ChangeMaker maker = new ChangeMaker(usd);
+        assertArrayEquals("A dollar should be paid in quarters",
+                new int[]{0, 0, 4, 0, 0}, maker.makeChange(100, new int[]{0, 0, 10, 10, 10}));
+    }
+
+    /**
+     * The knapsack should find the same number of coins as a plain search
+     * for amounts above the cache and for large inventories.
+     */
+    @Test
+    public void shouldMatchBruteForce() {
+        Denominations euro = new Denominations(10, 20, 50, 100, 200);
+        ChangeMaker maker = new ChangeMaker(euro, 0);
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] inventory = new int[euro.count()];
+            for (int slot = 0; slot < inventory.length; slot++) {
+                inventory[slot] = random.nextInt(round < 100 ? 4 : 1000);
+            }
+            int amount = random.nextInt(1500);
+            int[] coins = maker.makeChange(amount, inventory);
+            int paid = 0, count = 0;
+            for (int slot = 0; slot < coins.length; slot++) {
+                assertTrue("Coins should come from the inventory", coins[slot] <= inventory[slot]);
+                paid += coins[slot] * euro.value(slot);
+                count += coins[slot];
+            }
+            int[] best = bruteForce(euro, inventory, amount);
+            assertEquals("Largest payable amount for " + amount, best[0], paid);
+            assertEquals("Fewest coins for " + amount, best[1], count);
+        }
+    }
+
+    /*
+     * Return the largest payable amount up to amount and the fewest coins
+     * paying it, trying the coins one at a time.
+     */
+    private static int[] bruteForce(Denominations d, int[] inventory, int amount) {
+        int[] fewest = new int[amount + 1];
+        Arrays.fill(fewest, Integer.MAX_VALUE);
+        fewest[0] = 0;
+        for (int slot = 0; slot < d.count(); slot++) {
+            int value = d.value(slot);
+            for (int coin = 0; coin < Math.min(inventory[slot], amount / value); coin++) {
+                for (int a = amount; a >= value; a--) {
+                    if (fewest[a - value] != Integer.MAX_VALUE) {
+                        fewest[a] = Math.min(fewest[a], fewest[a - value] + 1);
+                    }
+                }
+            }
+        }
+        int paid = amount;
+        while (fewest[paid] == Integer.MAX_VALUE) {
+            paid--;
+        }
+        return new int[]{paid, fewest[paid]};
+    }
+
+    /**
+     * The vault should pay change from the coins it holds and count them
+     * out of its inventory.
+     */
+    @Test
+    public void shouldPayOutOfVault() {
+        CoinVault vault = new CoinVault(Denominations.US_COINS);
+        vault.refill(new int[]{2, 2, 0});
+        vault.refill(25, 1);
+        assertEquals("Vault should hold 55 cents", 55, vault.balance());
+        Map<Integer, Integer> answer = new HashMap<>();
+        answer.put(25, 1);
+        answer.put(10, 1);
+        assertEquals("35 cents should be a quarter and a dime", answer, vault.payOut(35));
+        assertEquals("Paid quarter should leave the vault", 0, vault.count(25));
+        assertEquals("Vault should hold 20 cents", 20, vault.balance());
+        assertTrue("Nothing to pay should pay nothing", vault.payOut(0).isEmpty());
+    }
+
+    /**
+     * The registered currencies should accept their coins and bills.
+     */
+    @Test
+    public void shouldLookUpCurrencies() {
+        Denominations euro = DenominationRegistry.lookup("EUR");
+        assertTrue("2 euro coin should be accepted", euro.accepts(200));
+        assertFalse("2 euro coin should not be a bill", euro.isBill(euro.slotOf(200)));
+        assertTrue("10 euro bill should be a bill", euro.isBill(euro.slotOf(1000)));
+        assertFalse("Quarter should not be accepted", euro.accepts(25));
+        assertTrue("Currencies should be listed", DenominationRegistry.currencies().contains("DKK"));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Testcases for the multi-lane Pay Station.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentPayStationTest {
+
+    ConcurrentPayStation station;
+
+    @Before
+    public void setup() {
+        station = new ConcurrentPayStation(4, Town.ALPHA_TOWN.rateStrategy());
+    }
+
+    /**
+     * Each lane should keep its own transaction.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void lanesShouldHaveSeparateTransactions() throws IllegalCoinException {
+        station.lane(0).addPayment(25);
+        station.lane(1).addPayment(5);
+        assertEquals("Lane 0 should display 10 min", 10, station.lane(0).readDisplay());
+        assertEquals("Lane 1 should display 2 min", 2, station.lane(1).readDisplay());
+        station.lane(1).cancel();
+        assertEquals("Cancel on lane 1 should not touch lane 0",
+                10, station.lane(0).readDisplay());
+    }
+
+    /**
+     * Empty should return the money bought on all lanes, and only once.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void emptyShouldCollectAllLanes() throws IllegalCoinException {
+        station.lane(0).addPayment(25);
+        station.lane(0).buy();
+        station.lane(3).addPayment(10);
+        station.lane(3).buy();
+        station.lane(2).addPayment(5);
+        station.lane(2).cancel();
+        assertEquals("Empty should return money of all lanes", 35, station.lane(1).empty());
+        assertEquals("Second empty should return nothing", 0, station.empty());
+    }
+
+    /**
+     * No money should be lost when lanes buy while the station is emptied.
+     * @throws InterruptedException if interrupted while waiting for lanes
+     */
+    @Test
+    public void emptyShouldNotLoseConcurrentBuys() throws InterruptedException {
+        final int buysPerLane = 20000;
+        final CountDownLatch done = new CountDownLatch(station.laneCount());
+        for (int i = 0; i < station.laneCount(); i++) {
+            final PayStation lane = station.lane(i);
+            new Thread(() -> {
+                try {
+                    for (int n = 0; n < buysPerLane; n++) {
+                        lane.addPayment(5);
+                        lane.buy();
+                    }
+                } catch (IllegalCoinException e) {
+                    fail(e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long collected = 0;
+        while (done.getCount() > 0) {
+            collected += station.empty();
+        }
+        done.await();
+        collected += station.empty();
+        assertEquals("All money bought should be collected",
+                5L * buysPerLane * station.laneCount(), collected);
+    }
+}
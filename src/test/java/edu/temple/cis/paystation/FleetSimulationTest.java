@@ -0,0 +1,77 @@
+/*
+ * Testcases for the fleet simulation.
+ */
+package edu.temple.cis.paystation;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FleetSimulationTest {
+
+    /**
+     * A fleet run should find no invariant violations.
+     * @throws InterruptedException if interrupted while running the fleet
+     */
+    @Test
+    public void shouldKeepInvariants() throws InterruptedException {
+        FleetSimulation simulation = new FleetSimulation(20, 5000, 42);
+        simulation.setInvalidPercent(5);
+        FleetSimulation.Result result = simulation.run();
+        assertEquals("No invariant should be violated: " + result.getMessages(),
+                0, result.getViolations());
+        assertEquals("Every transaction should be bought or cancelled",
+                20 * 5000, result.getBought() + result.getCancelled());
+        assertTrue("Invalid coins should be tried", result.getRejected() > 0);
+        assertTrue("Time should be sold", result.getMinutes() > 0);
+    }
+
+    /**
+     * The totals should depend on the seed only, not on the number of
+     * threads.
+     * @throws InterruptedException if interrupted while running the fleet
+     */
+    @Test
+    public void shouldBeDeterministic() throws InterruptedException {
+        FleetSimulation one = new FleetSimulation(10, 2000, 7);
+        one.setThreads(1);
+        FleetSimulation four = new FleetSimulation(10, 2000, 7);
+        four.setThreads(4);
+        FleetSimulation.Result a = one.run();
+        FleetSimulation.Result b = four.run();
+        assertEquals("Revenue should match", a.getRevenue(), b.getRevenue());
+        assertEquals("Minutes should match", a.getMinutes(), b.getMinutes());
+        assertEquals("Coins should match", a.getCoins(), b.getCoins());
+        assertEquals("Cancels should match", a.getCancelled(), b.getCancelled());
+        assertNotEquals("Another seed should give other totals",
+                a.getRevenue(), new FleetSimulation(10, 2000, 8).run().getRevenue());
+    }
+
+    /**
+     * Cancelled coins should never count toward revenue.
+     * @throws InterruptedException if interrupted while running the fleet
+     */
+    @Test
+    public void shouldNotEarnCancelledCoins() throws InterruptedException {
+        FleetSimulation simulation = new FleetSimulation(5, 1000, 42);
+        simulation.setCancelPercent(100);
+        FleetSimulation.Result result = simulation.run();
+        assertEquals("No invariant should be violated: " + result.getMessages(),
+                0, result.getViolations());
+        assertEquals("Nothing should be earned", 0, result.getRevenue());
+        assertTrue("Coins should be returned", result.getCancelledCents() > 0);
+    }
+
+    /**
+     * Stations should accept the coins of another currency.
+     * @throws InterruptedException if interrupted while running the fleet
+     */
+    @Test
+    public void shouldSimulateOtherCoins() throws InterruptedException {
+        FleetSimulation simulation = new FleetSimulation(5, 1000, 42);
+        simulation.setCoinMix(new int[]{10, 20, 50, 100, 200}, new int[]{3, 3, 2, 1, 1});
+        FleetSimulation.Result result = simulation.run();
+        assertEquals("No invariant should be violated: " + result.getMessages(),
+                0, result.getViolations());
+        assertTrue("Money should be earned", result.getRevenue() > 0);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Testcases for the fraud and anomaly detector.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FraudDetectorTest {
+
+    private static final long T0 = 1700000000000L;
+
+    // Alerts as "kind station count"
+    private final List<String> alerts = new ArrayList<>();
+    private FraudDetector detector;
+
+    @Before
+    public void setup() {
+        // A window of 6 buckets of 10 seconds
+        detector = new FraudDetector(100, 10000, 6,
+                (timestamp, stationId, kind, count) -> alerts.add(kind + " " + stationId + " " + count));
+        detector.setRejectThreshold(5);
+        detector.setCancelThreshold(3);
+    }
+
+    /**
+     * A run of rejected coins should raise one alert per window.
+     */
+    @Test
+    public void shouldAlertOnRejectedCoinRun() {
+        for (int i = 0; i < 20; i++) {
+            detector.record(T0 + i * 100, 7, TransactionJournal.REJECTED, 17, 0);
+        }
+        assertEquals(1, alerts.size());
+        assertEquals(FraudDetector.REJECTED_COINS + " 7 5", alerts.get(0));
+        assertEquals(20, detector.windowCount(7, TransactionJournal.REJECTED));
+    }
+
+    /**
+     * Inserting and cancelling over and over should alert, but cancels
+     * among enough buys should not.
+     */
+    @Test
+    public void shouldAlertOnInsertCancelLoop() {
+        for (int i = 0; i < 4; i++) {
+            detector.record(T0 + i * 1000, 1, TransactionJournal.COIN, 25, 0);
+            detector.record(T0 + i * 1000 + 10, 1, TransactionJournal.CANCEL, 25, 10);
+            detector.record(T0 + i * 1000, 2, TransactionJournal.COIN, 25, 0);
+            detector.record(T0 + i * 1000 + 10, 2, TransactionJournal.BUY, 25, 10);
+            detector.record(T0 + i * 1000 + 20, 2, TransactionJournal.BUY, 25, 10);
+            detector.record(T0 + i * 1000 + 30, 2, TransactionJournal.CANCEL, 25, 10);
+        }
+        assertEquals(1, alerts.size());
+        assertEquals(FraudDetector.CANCEL_LOOP + " 1 3", alerts.get(0));
+    }
+
+    /**
+     * Events should leave the window once it has slid past them, and
+     * events older than the window should be ignored.
+     */
+    @Test
+    public void shouldSlideWindow() {
+        for (int i = 0; i < 4; i++) {
+            detector.record(T0 + i * 10000, 3, TransactionJournal.REJECTED, 17, 0);
+        }
+        assertEquals(4, detector.windowCount(3, TransactionJournal.REJECTED));
+        detector.record(T0 + 70000, 3, TransactionJournal.COIN, 25, 0);
+        assertEquals("Buckets 1 to 3 are still in the window",
+                2, detector.windowCount(3, TransactionJournal.REJECTED));
+        detector.record(T0, 3, TransactionJournal.REJECTED, 17, 0);
+        assertEquals(2, detector.windowCount(3, TransactionJournal.REJECTED));
+        detector.record(T0 + 1000000, 3, TransactionJournal.COIN, 25, 0);
+        assertEquals(0, detector.windowCount(3, TransactionJournal.REJECTED));
+        assertEquals(1, detector.windowCount(3, TransactionJournal.COIN));
+        assertTrue(alerts.isEmpty());
+    }
+
+    /**
+     * A station far above the rest of the fleet should be reported as an
+     * outlier, even below the fixed thresholds.
+     */
+    @Test
+    public void shouldAlertOnOutlier() {
+        detector.setRejectThreshold(Integer.MAX_VALUE);
+        detector.setCancelThreshold(Integer.MAX_VALUE);
+        detector.setOutlier(4, 3);
+        for (int b = 0; b < 20; b++) {
+            long time = T0 + b * 10000;
+            for (int station = 0; station < 50; station++) {
+                detector.record(time, station, TransactionJournal.COIN, 25, 0);
+                if (station % 10 == b % 10) {
+                    detector.record(time, station, TransactionJournal.REJECTED, 17, 0);
+                }
+                if (station == 42 && b == 15) {
+                    for (int i = 0; i < 4; i++) {
+                        detector.record(time, station, TransactionJournal.REJECTED, 17, 0);
+                    }
+                }
+            }
+        }
+        assertEquals(1, alerts.size());
+        assertEquals(FraudDetector.OUTLIER + " 42 4", alerts.get(0));
+    }
+
+    /**
+     * Stations beyond the maximum should be counted but not watched.
+     */
+    @Test
+    public void shouldBoundStations() {
+        FraudDetector small = new FraudDetector(2, (timestamp, stationId, kind, count) -> { });
+        for (int station = 0; station < 5; station++) {
+            small.record(T0, station, TransactionJournal.COIN, 25, 0);
+        }
+        small.record(T0, 1, TransactionJournal.EMPTY, 50, 0);
+        assertEquals(2, small.getStationCount());
+        assertEquals(5, small.getEvents());
+        assertEquals(3, small.getUntracked());
+        assertEquals(0, small.windowCount(4, TransactionJournal.COIN));
+    }
+
+    /**
+     * A pay station should pass its events, rejected coins included, to
+     * the detector.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldWatchPayStation() throws IllegalCoinException {
+        FraudDetector live = new FraudDetector(10,
+                (timestamp, stationId, kind, count) -> alerts.add(kind + " " + stationId + " " + count));
+        live.setCancelThreshold(2);
+        PayStationImpl ps = new PayStationImpl(Town.ALPHA_TOWN.rateStrategy(), 9);
+        ps.setEventHandler(live);
+        ps.tryAddPayment(17);
+        ps.addPayment(25);
+        ps.cancel();
+        ps.addPayment(25);
+        ps.cancel();
+        assertEquals(1, live.windowCount(9, TransactionJournal.REJECTED));
+        assertEquals(2, live.windowCount(9, TransactionJournal.COIN));
+        assertEquals(FraudDetector.CANCEL_LOOP + " 9 2", alerts.get(0));
+    }
+}
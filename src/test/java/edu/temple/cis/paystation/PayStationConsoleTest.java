@@ -0,0 +1,134 @@
+/*
+ * Testcases for the pay station console and its terminal input and output.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PayStationConsoleTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private TerminalOutput out;
+
+    private TerminalInput input(String text, int capacity) {
+        return new TerminalInput(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))), out, capacity);
+    }
+
+    private TerminalInput input(String text) {
+        return input(text, 16);
+    }
+
+    private PayStationConsole console(PayStationImpl ps, String input) {
+        out = new TerminalOutput(Channels.newChannel(output), 64);
+        return new PayStationConsole(ps, input(input), out);
+    }
+
+    /**
+     * The menu should deposit coins, skip invalid ones, show the display
+     * and sell a ticket.
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    public void shouldRunScriptedMenu() throws IOException {
+        PayStationImpl ps = new PayStationImpl();
+        PayStationConsole console = console(ps, "1\n25 17 10 0\n2\n3\n7\n");
+        console.run();
+        String text = output.toString("US-ASCII");
+        assertTrue("Invalid coin should be reported", text.contains("Invalid coin: 17"));
+        assertTrue("Display should show 35 cents", text.contains("Total time purchased: 14 minutes."));
+        assertTrue("Receipt should be sold", text.contains("Receipt valid for 14 minutes."));
+        assertEquals("Bought money should be collected", 35, ps.empty());
+        assertEquals("Options and coins should be counted", 7, console.getCommands());
+    }
+
+    /**
+     * A token that is not a number should be refused like a wrong option,
+     * and the end of the input should end the menu.
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    public void shouldEndOnEndOfInput() throws IOException {
+        try {
+            console(new PayStationImpl(), "x 1 25").run();
+            fail("End of input should end the menu");
+        } catch (EOFException e) {
+            assertTrue("Bad token should be refused",
+                    output.toString("US-ASCII").contains("Invalid input; please reselect valid option."));
+        }
+    }
+
+    /**
+     * The town chosen in the menu should set the rate.
+     * @throws IOException if the input cannot be read
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldChooseTown() throws IOException, IllegalCoinException {
+        PayStationImpl ps = new PayStationImpl();
+        console(ps, "9 4\n").chooseTown();
+        ps.addPayment(25);
+        assertEquals("DeltaTown should give 1 min per 5 cents", 5, ps.readDisplay());
+    }
+
+    /**
+     * Numbers should be parsed across buffer refills, and tokens that are
+     * not numbers or do not fit an int should read as -1.
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    public void shouldParseNumbers() throws IOException {
+        TerminalInput in = input("  12\t-7\r\n1x 99999999999 2147483647 x\n0");
+        assertEquals(12, in.nextInt());
+        assertEquals(-7, in.nextInt());
+        assertEquals(-1, in.nextInt());
+        assertEquals(-1, in.nextInt());
+        assertEquals(Integer.MAX_VALUE, in.nextInt());
+        assertEquals(-1, in.nextInt());
+        assertEquals(0, in.nextInt());
+        try {
+            in.nextInt();
+            fail("End of input should be reported");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Bytes of 0x80 and above, like line noise or UTF-8, should make a
+     * token that is not a number rather than end the input.
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    public void shouldReadHighBytesAsInvalidToken() throws IOException {
+        byte[] bytes = {'5', ' ', (byte) 0xFF, ' ', '1', (byte) 0xC3, (byte) 0xA9, ' ', '7'};
+        TerminalInput in = new TerminalInput(Channels.newChannel(
+                new ByteArrayInputStream(bytes)), null, 4);
+        assertEquals(5, in.nextInt());
+        assertEquals(-1, in.nextInt());
+        assertEquals(-1, in.nextInt());
+        assertEquals(7, in.nextInt());
+    }
+
+    /**
+     * A screen should be written at once, when the console waits for
+     * input, not line by line. Each read gets one choice, like a customer
+     * typing them one by one.
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    public void shouldFlushOncePerScreen() throws IOException {
+        out = new TerminalOutput(Channels.newChannel(output));
+        PayStationConsole console = new PayStationConsole(new PayStationImpl(), input("2 2 7", 2), out);
+        console.run();
+        assertEquals("One write per screen", 3, out.getFlushes());
+        assertTrue(output.toString("US-ASCII").endsWith("7) Exit\n"));
+    }
+}
@@ -287,4 +287,249 @@ public class PayStationImplTest {
         assertTrue("Coin map should be empty after buy", ps.cancel().isEmpty());
     }
 
+    /**
+     * Verify that a batch of coins is added as if inserted one by one.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldAddBatchOfCoins() throws IllegalCoinException
+    {
+        ps.addPayments(new int[]{17, 10, 25, 5, 25, 17}, 1, 4);
+        assertEquals("Batch of 65 cents should display 26 min", 26, ps.readDisplay());
+        Map<Integer, Integer> answer = new HashMap<Integer, Integer>(){{
+            put(10, 1);
+            put(5, 1);
+            put(25, 2);
+        }};
+        assertEquals("Coin map should contain the coins of the batch", answer, ps.cancel());
+    }
+
+    /**
+     * Verify that a batch with an illegal coin is rejected as a whole and
+     * that the index of the illegal coin is reported.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldRejectWholeBatchWithIllegalCoin() throws IllegalCoinException
+    {
+        ps.addPayment(5);
+        try {
+            ps.addPayments(new int[]{25, 10, 17, 5}, 0, 4);
+            fail("Batch with an illegal coin should be rejected");
+        } catch (IllegalCoinException e) {
+            assertEquals("Index of the illegal coin should be reported", 2, e.getIndex());
+        }
+        assertEquals("Rejected batch should not change the display", 2, ps.readDisplay());
+        assertEquals("Rejected batch should not add coins", 1, ps.cancel().size());
+    }
+
+    /**
+     * Verify that tryAddPayment reports an illegal coin by its status and
+     * leaves the station unchanged.
+     */
+    @Test
+    public void shouldReportIllegalCoinByStatus()
+    {
+        assertEquals("Quarter should be accepted", PayStation.COIN_ACCEPTED, ps.tryAddPayment(25));
+        assertEquals("17 cents should be invalid", PayStation.COIN_INVALID, ps.tryAddPayment(17));
+        assertEquals("Negative coin should be invalid", PayStation.COIN_INVALID, ps.tryAddPayment(-5));
+        assertEquals("Invalid coins should not change the display", 10, ps.readDisplay());
+    }
+
+    /**
+     * Verify that an illegal coin throws an exception without a stack trace
+     * that still names the coin.
+     */
+    @Test
+    public void shouldThrowIllegalCoinWithoutStackTrace()
+    {
+        try {
+            ps.addPayment(17);
+            fail("17 cents should be rejected");
+        } catch (IllegalCoinException e) {
+            assertEquals("Message should name the coin", "Invalid coin: 17", e.getMessage());
+            assertEquals("Stack trace should be empty", 0, e.getStackTrace().length);
+        }
+    }
+
+    /**
+     * Verify that a station accepts the coins of its denominations and
+     * returns them on cancel.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldAcceptConfiguredDenominations() throws IllegalCoinException
+    {
+        PayStation euro = new PayStationImpl(new LinearRateStrategy(2), 0,
+                new Denominations(10, 20, 50, 100, 200));
+        assertEquals("Quarter should be invalid", PayStation.COIN_INVALID, euro.tryAddPayment(25));
+        euro.addPayment(200);
+        euro.addPayments(new int[]{50, 20, 50}, 0, 3);
+        assertEquals("320 cents should display 128 min", 128, euro.readDisplay());
+        Map<Integer, Integer> answer = new HashMap<Integer, Integer>(){{
+            put(200, 1);
+            put(50, 2);
+            put(20, 1);
+        }};
+        assertEquals("Coin map should contain the configured coins", answer, euro.cancel());
+    }
+
+    /**
+     * Verify that coin values rates cannot charge for are refused, as
+     * rates take amounts in steps of 5 cent.
+     */
+    @Test
+    public void shouldRefuseCoinsOffTheRateGrid()
+    {
+        try {
+            new Denominations(1, 2);
+            fail("A 1 cent coin should be refused");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Bad coin value: 1", e.getMessage());
+        }
+        try {
+            Denominations.US_COINS.withBills(157);
+            fail("A 157 cent bill should be refused");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that money above the maximum payment is given back as change
+     * on buy and not earned.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldGiveChangeAboveMaxPayment() throws IllegalCoinException
+    {
+        PayStationImpl station = new PayStationImpl();
+        station.setMaxPayment(100);
+        station.getVault().refill(5, 10);
+        station.addPayments(new int[]{25, 25, 25, 10, 10, 10, 10}, 0, 7);
+        assertEquals("115 cents should only buy 100 cents of time", 40, station.readDisplay());
+        assertEquals("Receipt should show 40 min", 40, station.buy().value());
+        Map<Integer, Integer> answer = new HashMap<Integer, Integer>(){{
+            put(10, 1);
+            put(5, 1);
+        }};
+        assertEquals("15 cents should be given as change", answer, station.change());
+        assertEquals("Vault should lose the change", 9, station.getVault().count(5));
+        assertEquals("Only the charge should be earned", 100, station.empty());
+    }
+
+    /**
+     * Verify that the display is only calculated when it is read, and only
+     * once for the same coins.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldCalculateDisplayWhenRead() throws IllegalCoinException
+    {
+        int[] calls = {0};
+        PayStation station = new PayStationImpl(amount -> {
+            calls[0]++;
+            return amount * 2 / 5;
+        });
+        for (int i = 0; i < 10; i++) {
+            station.addPayment(25);
+        }
+        assertEquals("Inserting coins should not calculate the display", 0, calls[0]);
+        assertEquals("250 cents should display 100 min", 100, station.readDisplay());
+        assertEquals("Display should not change", 100, station.readDisplay());
+        assertEquals("Display should be calculated once", 1, calls[0]);
+        assertEquals("Receipt should show the display", 100, station.buy().value());
+        assertEquals("Buy should use the calculated display", 1, calls[0]);
+        assertEquals("Display should be cleared after buy", 0, station.readDisplay());
+    }
+
+    /**
+     * Verify that the money collected is not limited to what an int holds.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldCollectMoreThanAnIntHolds() throws IllegalCoinException
+    {
+        PayStation station = new PayStationImpl(amount -> 0, 0,
+                Denominations.US_COINS.withBills(10000));
+        long expected = 0;
+        while (expected <= Integer.MAX_VALUE) {
+            station.addPayment(10000);
+            station.buy();
+            expected += 10000;
+        }
+        assertEquals("Money beyond an int should be collected", expected, station.empty());
+        assertEquals("Empty should reset the money", 0, station.empty());
+    }
+
+    /**
+     * A coin that would take the transaction beyond what an int holds
+     * should be refused, not wrap around.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldRefuseCoinThatOverflowsTransaction() throws IllegalCoinException
+    {
+        PayStation station = new PayStationImpl(amount -> amount, 0,
+                Denominations.US_COINS.withBills(10000));
+        int coins = Integer.MAX_VALUE / 10000;
+        for (int i = 0; i < coins; i++) {
+            station.addPayment(10000);
+        }
+        assertEquals("Full transaction should refuse a bill",
+                PayStation.COIN_INVALID, station.tryAddPayment(10000));
+        try {
+            station.addPayments(new int[]{5, 10000, 25}, 0, 3);
+            fail("Batch beyond an int should be refused");
+        } catch (IllegalCoinException e) {
+            assertEquals("The bill should be reported", 1, e.getIndex());
+        }
+        assertEquals("Display should be unchanged", coins * 10000, station.readDisplay());
+        assertEquals(PayStation.COIN_ACCEPTED, station.tryAddPayment(25));
+    }
+
+    /**
+     * OmegaTown parking turns free at Friday midnight. A transaction still
+     * going then should take no more coins, and buying should give the coins
+     * back rather than keep them for no time. Refusing good coins is not a
+     * reject of illegal coins.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldReturnCoinsWhenParkingTurnsFree() throws IllegalCoinException
+    {
+        RateScheduleTest.SettableClock clock =
+                new RateScheduleTest.SettableClock(java.time.ZoneId.of("America/New_York"));
+        clock.set("2023-11-24T23:59");
+        PayStationImpl station = new PayStationImpl(Town.OMEGA_TOWN.rateStrategy(clock));
+        station.addPayment(25);
+        station.addPayment(10);
+        assertEquals("Friday should sell time", 14, station.readDisplay());
+        PayStationMetrics metrics = new PayStationMetrics();
+        station.setMetrics(metrics);
+        List<Integer> events = new ArrayList<>();
+        station.setEventHandler((timestamp, id, type, cents, minutes) -> events.add(type));
+
+        clock.set("2023-11-25T00:00");
+        assertEquals("Coin after midnight should be refused",
+                PayStation.COIN_INVALID, station.tryAddPayment(25));
+        try {
+            station.addPayments(new int[]{5, 10}, 0, 2);
+            fail("Batch after midnight should be refused");
+        } catch (IllegalCoinException e) {
+            assertEquals(0, e.getIndex());
+        }
+        assertEquals("Good coins should not count as illegal", 0, metrics.getIllegalCoins());
+        assertEquals(Arrays.asList(TransactionJournal.REFUSED, TransactionJournal.REFUSED), events);
+        Receipt receipt = station.buy();
+        assertEquals("No time should be sold", 0, receipt.value());
+        Map<Integer, Integer> change = station.change();
+        assertEquals("Coins should be given back", Integer.valueOf(1), change.get(25));
+        assertEquals(Integer.valueOf(1), change.get(10));
+        assertEquals("No money should be kept", 0, station.empty());
+
+        clock.set("2023-11-27T08:00");
+        assertEquals("Monday should take coins again",
+                PayStation.COIN_ACCEPTED, station.tryAddPayment(25));
+    }
 }
@@ -0,0 +1,24 @@
+/*
+ * Testcases for the pay station launcher.
+ */
+package edu.temple.cis.paystation;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PayStationLauncherTest {
+
+    /**
+     * The warm-up should run on a scratch station and leave the real one
+     * alone.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void shouldWarmUpOnScratchStation() throws InterruptedException {
+        PayStationImpl ps = new PayStationImpl();
+        assertTrue("Warm-up should sell time",
+                PayStationLauncher.warmUp(ps.getRateStrategy()) > 0);
+        PayStationLauncher.startWarmUp(ps).join();
+        assertEquals("Real station should not earn anything", 0, ps.empty());
+    }
+}
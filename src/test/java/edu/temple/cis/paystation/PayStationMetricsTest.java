@@ -0,0 +1,127 @@
+/*
+ * Testcases for the metrics of the Pay Station.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PayStationMetricsTest {
+
+    PayStationImpl ps;
+    PayStationMetrics metrics;
+
+    @Before
+    public void setup() {
+        ps = new PayStationImpl();
+        metrics = new PayStationMetrics(5, 10, 25);
+        ps.setMetrics(metrics);
+    }
+
+    /**
+     * Operations on the station should be counted.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldCountOperations() throws IllegalCoinException {
+        ps.addPayment(25);
+        ps.addPayments(new int[]{5, 5, 10}, 0, 3);
+        try {
+            ps.addPayment(17);
+        } catch (IllegalCoinException e) {
+            // counted
+        }
+        ps.buy();
+        ps.cancel();
+        ps.empty();
+        assertEquals(2, metrics.coins(5));
+        assertEquals(1, metrics.coins(10));
+        assertEquals(1, metrics.coins(25));
+        assertEquals(4, metrics.getCoinsInserted());
+        assertEquals(1, metrics.getIllegalCoins());
+        assertEquals(1, metrics.getBuys());
+        assertEquals(1, metrics.getCancels());
+        assertEquals(1, metrics.getEmpties());
+        assertEquals(2, metrics.histogram(PayStationMetrics.Operation.ADD_PAYMENT).count());
+    }
+
+    /**
+     * Percentiles should be within the precision of the histogram buckets.
+     */
+    @Test
+    public void histogramShouldReportPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 1000; v++) {
+            h.record(v);
+        }
+        assertEquals(1000, h.count());
+        assertEquals(500500, h.sum());
+        long median = h.percentile(50);
+        assertTrue("Median should be close to 500: " + median, median >= 500 && median <= 563);
+        long max = h.percentile(100);
+        assertTrue("Maximum should be close to 1000: " + max, max >= 1000 && max <= 1125);
+    }
+
+    /**
+     * Every value should fall in the bucket whose bounds contain it.
+     */
+    @Test
+    public void bucketsShouldContainTheirValues() {
+        for (long v : new long[]{0, 1, 7, 8, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+            int b = LatencyHistogram.bucketOf(v);
+            assertTrue(v + " below bucket", LatencyHistogram.lowerBound(b) <= v);
+            assertTrue(v + " above bucket", LatencyHistogram.upperBound(b) >= v);
+        }
+    }
+
+    /**
+     * The metrics should be served as plain text over HTTP.
+     * @throws Exception if the endpoint cannot be read
+     */
+    @Test
+    public void endpointShouldServeText() throws Exception {
+        ps.addPayment(10);
+        ps.buy();
+        try (MetricsEndpoint endpoint = metrics.startEndpoint(0)) {
+            InetAddress host = endpoint.getAddress().getAddress();
+            assertTrue("Endpoint should only listen on loopback", host.isLoopbackAddress());
+            URL url = new URL("http", host.getHostAddress(), endpoint.getPort(), "/metrics");
+            HttpURLConnection c = (HttpURLConnection) url.openConnection();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = c.getInputStream()) {
+                byte[] buf = new byte[4096];
+                for (int n; (n = in.read(buf)) > 0; ) {
+                    body.write(buf, 0, n);
+                }
+            }
+            String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(text, text.contains("paystation_coins_total{coin=\"10\"} 1\n"));
+            assertTrue(text, text.contains("paystation_buys_total 1\n"));
+            assertTrue(text, text.contains("paystation_latency_nanos_count{op=\"buy\"} 1\n"));
+        }
+    }
+
+    /**
+     * The metrics should be registered as a JMX MBean.
+     * @throws Exception if the MBean cannot be read
+     */
+    @Test
+    public void shouldRegisterMBean() throws Exception {
+        String name = "edu.temple.cis.paystation:type=PayStationMetrics,name=test";
+        metrics.registerMBean(name);
+        ps.addPayment(5);
+        ps.buy();
+        javax.management.MBeanServer server =
+                java.lang.management.ManagementFactory.getPlatformMBeanServer();
+        javax.management.ObjectName objectName = new javax.management.ObjectName(name);
+        assertEquals(1L, server.getAttribute(objectName, "Buys"));
+        server.unregisterMBean(objectName);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Testcases for the sharded pay station registry. Other nodes are stood in
+ * for by PayStationServers on the loopback interface.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PayStationRegistryTest {
+
+    private static final int STATIONS = 10000;
+
+    private final List<PayStationServer> servers = new ArrayList<>();
+    private PayStationRegistry registry;
+
+    @Before
+    public void setup() {
+        registry = new PayStationRegistry("a", 4, Town.ALPHA_TOWN.rateStrategy());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        registry.close();
+        for (PayStationServer server : servers) {
+            server.close();
+        }
+    }
+
+    private InetSocketAddress startServer() throws IOException {
+        PayStationServer server = new PayStationServer(0, Town.ALPHA_TOWN.rateStrategy());
+        server.start();
+        servers.add(server);
+        return new InetSocketAddress("127.0.0.1", server.getPort());
+    }
+
+    private int stationOf(String node) {
+        for (int id = 0; ; id++) {
+            if (registry.nodeOf(id).equals(node)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Stations of this node should be kept in shards and run the commands
+     * sent to them in order.
+     */
+    @Test
+    public void shouldRunLocalStationsInShards() {
+        List<CompletableFuture<PayStationUpdate>> receipts = new ArrayList<>();
+        for (int id = 0; id < 100; id++) {
+            registry.addPayment(id, 25);
+            registry.addPayment(id, 17);
+            registry.addPayment(id, 10);
+            receipts.add(registry.buy(id));
+        }
+        for (CompletableFuture<PayStationUpdate> receipt : receipts) {
+            assertEquals(14, receipt.join().getReceipt().value());
+        }
+        assertEquals(100, registry.stationCount());
+        assertEquals("Bought money should be collected", 3500, (long) registry.empty().join());
+        assertEquals(PayStationUpdate.Type.REJECTED, registry.addPayment(7, 17).join().getType());
+        assertEquals(Collections.singletonMap(5, 1), registry.addPayment(7, 5)
+                .thenCompose(u -> registry.cancel(7)).join().getCoins());
+    }
+
+    /**
+     * Shards should share the stations about evenly.
+     */
+    @Test
+    public void shouldSpreadStationsOverShards() {
+        int[] perShard = new int[4];
+        for (int id = 0; id < STATIONS; id++) {
+            perShard[registry.shardOf(id)]++;
+        }
+        for (int count : perShard) {
+            assertTrue("Shard has " + count, Math.abs(count - STATIONS / 4) < STATIONS / 20);
+        }
+    }
+
+    /**
+     * Adding a node should move about its share of the stations, all to
+     * the new node, and drop the local stations that moved.
+     * @throws IOException if a node cannot be reached
+     */
+    @Test
+    public void shouldMoveFewStationsWhenNodeAdded() throws IOException {
+        registry.addNode("b", startServer());
+        registry.addNode("c", startServer());
+        String[] before = new String[STATIONS];
+        for (int id = 0; id < STATIONS; id++) {
+            before[id] = registry.nodeOf(id);
+        }
+        int local = stationOf("a");
+        registry.addPayment(local, 25).join();
+        int moved = 0;
+        registry.addNode("d", startServer());
+        for (int id = 0; id < STATIONS; id++) {
+            if (!registry.nodeOf(id).equals(before[id])) {
+                assertEquals("Stations should only move to the new node", "d", registry.nodeOf(id));
+                moved++;
+            }
+        }
+        assertTrue("Moved " + moved, moved > STATIONS / 6 && moved < STATIONS / 3);
+        assertEquals(0, registry.removeNode("d"));
+        for (int id = 0; id < STATIONS; id++) {
+            assertEquals("Removing the node should undo the move", before[id], registry.nodeOf(id));
+        }
+    }
+
+    /**
+     * Every node should compute the same owner for a station, whichever
+     * node is local.
+     * @throws IOException if a node cannot be reached
+     */
+    @Test
+    public void shouldAgreeOnOwnersAcrossNodes() throws IOException {
+        InetSocketAddress server = startServer();
+        registry.addNode("b", server);
+        try (PayStationRegistry b = new PayStationRegistry("b", 2, Town.ALPHA_TOWN.rateStrategy())) {
+            b.addNode("a", server);
+            for (int id = 0; id < STATIONS; id++) {
+                assertEquals(registry.nodeOf(id), b.nodeOf(id));
+            }
+        }
+    }
+
+    /**
+     * Commands for a station of another node should be forwarded to its
+     * server, and a local station that moves should return its coins.
+     * @throws IOException if a node cannot be reached
+     */
+    @Test
+    public void shouldForwardToOwningNode() throws IOException {
+        InetSocketAddress server = startServer();
+        int station;
+        try (PayStationRegistry probe = new PayStationRegistry("a", 1, Town.ALPHA_TOWN.rateStrategy())) {
+            probe.addNode("b", server);
+            station = 0;
+            while (!probe.nodeOf(station).equals("b")) {
+                station++;
+            }
+        }
+        Map<Integer, Map<Integer, Integer>> moved = new HashMap<>();
+        registry.setMoveHandler(moved::put);
+        // Run before the change; commands that wait would follow the station
+        registry.addPayment(station, 25).join();
+        registry.buy(station).join();
+        registry.addPayment(station, 10).join();
+        assertEquals("Station should move", 1, registry.addNode("b", server));
+        assertEquals("Coins of the ongoing transaction should be returned",
+                Collections.singletonMap(station, Collections.singletonMap(10, 1)), moved);
+        assertEquals("b", registry.nodeOf(station));
+        assertEquals("Money of the moved station should be kept", 25, (long) registry.empty().join());
+        assertEquals(0, registry.stationCount());
+
+        assertEquals(10, registry.addPayment(station, 25).join().getDisplay());
+        PayStationUpdate rejected = registry.addPayment(station, 17).join();
+        assertEquals(PayStationUpdate.Type.REJECTED, rejected.getType());
+        assertEquals(10, rejected.getDisplay());
+        PayStationUpdate bought = registry.buy(station).join();
+        assertEquals(10, bought.getReceipt().value());
+        assertEquals(station, bought.getReceipt().stationId());
+        registry.addPayment(station, 5);
+        assertEquals(Collections.singletonMap(5, 1), registry.cancel(station).join().getCoins());
+        assertEquals(1, servers.get(0).sessionCount());
+    }
+
+    /**
+     * A node that cannot be reached should not be added.
+     */
+    @Test
+    public void shouldRefuseUnreachableNode() {
+        try {
+            // Nothing listens on port 0
+            registry.addNode("b", new InetSocketAddress("127.0.0.1", 0));
+            fail("The node is down");
+        } catch (IOException e) {
+            // expected
+        }
+        for (int id = 0; id < 100; id++) {
+            assertEquals("a", registry.nodeOf(id));
+        }
+    }
+
+    /**
+     * Commands sent after the registry is closed should fail rather than
+     * never complete.
+     */
+    @Test
+    public void shouldFailCommandsWhenClosed() throws IOException {
+        assertEquals(2, registry.addPayment(1, 5).join().getDisplay());
+        registry.close();
+        CompletableFuture<PayStationUpdate> late = registry.addPayment(1, 5);
+        try {
+            late.join();
+            fail("The registry is closed");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Commands routed while nodes come and go should not leave stations on
+     * a node that no longer owns them.
+     * @throws Exception if a node cannot be reached
+     */
+    @Test
+    public void shouldNotKeepStationsRoutedOnOldRing() throws Exception {
+        InetSocketAddress server = startServer();
+        int ids = 1000;
+        int local = 0;
+        registry.addNode("b", server);
+        for (int id = 0; id < ids; id++) {
+            if (registry.nodeOf(id).equals("a")) {
+                local++;
+            }
+        }
+        for (int round = 0; round < 10; round++) {
+            registry.removeNode("b");
+            AtomicBoolean done = new AtomicBoolean();
+            List<Thread> customers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int first = t;
+                Thread customer = new Thread(() -> {
+                    for (int id = first; !done.get(); id = (id + 4) % ids) {
+                        registry.addPayment(id, 5);
+                    }
+                });
+                customer.start();
+                customers.add(customer);
+            }
+            registry.addNode("b", server);
+            done.set(true);
+            for (Thread customer : customers) {
+                customer.join();
+            }
+            // Runs after every command routed so far
+            registry.empty().join();
+            assertTrue("Stations kept by a: " + registry.stationCount(),
+                    registry.stationCount() <= local);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Testcases for the multi-session Pay Station server.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PayStationServerTest {
+
+    PayStationServer server;
+
+    @Before
+    public void setup() throws IOException {
+        server = new PayStationServer(0, Town.ALPHA_TOWN.rateStrategy());
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private String[] send(String... commands) throws IOException {
+        try (Socket s = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII)) {
+            for (String c : commands) {
+                out.write(c + "\n");
+            }
+            out.flush();
+            String[] replies = new String[commands.length];
+            for (int i = 0; i < commands.length; i++) {
+                replies[i] = in.readLine();
+            }
+            out.write("QUIT\n");
+            out.flush();
+            return replies;
+        }
+    }
+
+    /**
+     * A terminal should be able to pay and buy over the protocol.
+     * @throws IOException if the server cannot be reached
+     */
+    @Test
+    public void shouldServeBuyTransaction() throws IOException {
+        String[] replies = send("TERMINAL t1", "ADD 10", "ADD 25", "DISPLAY", "BUY", "EMPTY");
+        assertArrayEquals(new String[]{"OK", "OK 4", "OK 14", "OK 14", "OK 14", "OK 35"}, replies);
+    }
+
+    /**
+     * Illegal coins and commands before TERMINAL should be reported as errors.
+     * @throws IOException if the server cannot be reached
+     */
+    @Test
+    public void shouldReplyErrors() throws IOException {
+        String[] replies = send("DISPLAY", "TERMINAL t1", "ADD 17");
+        assertEquals("ERR No terminal selected", replies[0]);
+        assertEquals("ERR Invalid coin: 17", replies[2]);
+    }
+
+    /**
+     * Sessions should be kept per terminal and survive reconnects.
+     * @throws IOException if the server cannot be reached
+     */
+    @Test
+    public void shouldKeepSessionPerTerminal() throws IOException {
+        send("TERMINAL a", "ADD 25");
+        send("TERMINAL b", "ADD 5");
+        assertEquals("OK 10", send("TERMINAL a", "DISPLAY")[1]);
+        assertEquals("OK 5=1", send("TERMINAL b", "CANCEL")[1]);
+        assertEquals(2, server.sessionCount());
+    }
+
+    /**
+     * TRY should report a rejected coin with the display instead of an
+     * error.
+     * @throws IOException if the server cannot be reached
+     */
+    @Test
+    public void shouldTryCoins() throws IOException {
+        String[] replies = send("TERMINAL t1", "TRY 25", "TRY 17", "TRY x");
+        assertEquals("OK 10", replies[1]);
+        assertEquals("REJECTED 10", replies[2]);
+        assertEquals("ERR Bad coin: TRY x", replies[3]);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Testcases for the rate configuration file and its reloading.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class RateConfigTest {
+
+    // Noon UTC on Saturday 11 November 2023
+    private static final Clock SATURDAY = Clock.fixed(
+            Instant.parse("2023-11-11T12:00:00Z"), ZoneOffset.UTC);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Properties config(String... lines) throws IOException {
+        Properties p = new Properties();
+        p.load(new java.io.StringReader(String.join("\n", lines)));
+        return p;
+    }
+
+    private Path write(Path file, String... lines) throws IOException {
+        return Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A town can be chosen by name.
+     * @throws IOException never
+     */
+    @Test
+    public void shouldUseTownByName() throws IOException {
+        assertEquals(10, RateConfig.parse(config("rate = DeltaTown"), SATURDAY).calculateTime(50));
+        assertEquals(130, RateConfig.parse(config("rate = BETA_TOWN"), SATURDAY).calculateTime(400));
+    }
+
+    /**
+     * Rates defined in the file can refer to each other.
+     * @throws IOException never
+     */
+    @Test
+    public void shouldBuildDefinedRates() throws IOException {
+        RateStrategy rate = RateConfig.parse(config(
+                "rate = downtown",
+                "rate.downtown.type = weekend",
+                "rate.downtown.weekday = BetaTown",
+                "rate.downtown.weekend = cheap",
+                "rate.cheap.type = linear",
+                "rate.cheap.minutesPer5Cents = 3"), SATURDAY);
+        assertEquals("Saturday should use the cheap rate", 30, rate.calculateTime(50));
+    }
+
+    /**
+     * Mistakes in the configuration should be reported.
+     * @throws IOException never
+     */
+    @Test
+    public void shouldRejectBadConfiguration() throws IOException {
+        String[][] bad = {
+            {"rate = nowhere"},
+            {"rate = a", "rate.a.type = linear"},
+            {"rate = a", "rate.a.type = weekend", "rate.a.weekday = a", "rate.a.weekend = a"},
+            {"rate = a", "rate.a.type = bogus"},
+            {"rate = a", "rate.a.type = linear", "rate.a.minutesPer5Cents = -3"},
+        };
+        for (String[] lines : bad) {
+            try {
+                RateConfig.parse(config(lines), SATURDAY);
+                fail("Should reject " + String.join(", ", lines));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            RateConfig.parse(config("rate = a", "rate.a.type = linear",
+                    "rate.a.minutesPer5Cents = -3"), SATURDAY);
+        } catch (IllegalArgumentException e) {
+            assertEquals("Negative setting: rate.a.minutesPer5Cents = -3", e.getMessage());
+        }
+    }
+
+    /**
+     * A new rate should only apply from the next transaction on.
+     * @throws Exception if the file cannot be written
+     */
+    @Test
+    public void reloadShouldLetTransactionFinishUnderOldRate() throws Exception {
+        Path file = write(folder.getRoot().toPath().resolve("rate.properties"), "rate = AlphaTown");
+        PayStationImpl ps = new PayStationImpl();
+        try (RateConfigWatcher watcher = new RateConfigWatcher(file, SATURDAY)) {
+            watcher.addListener(ps::setNextRateStrategy);
+            ps.addPayment(25);
+            write(file, "rate = DeltaTown");
+            assertTrue(watcher.reload());
+            ps.addPayment(25);
+            assertEquals("Ongoing transaction should keep AlphaTown rate", 20, ps.buy().value());
+            ps.addPayment(25);
+            assertEquals("Next transaction should use DeltaTown rate", 5, ps.buy().value());
+
+            write(file, "rate = nowhere");
+            assertFalse("Bad configuration should be ignored", watcher.reload());
+            ps.addPayment(25);
+            assertEquals(5, ps.buy().value());
+        }
+    }
+
+    /**
+     * The watcher should notice the file changing by itself.
+     * @throws Exception if the file cannot be written
+     */
+    @Test
+    public void watcherShouldPickUpChangedFile() throws Exception {
+        Path file = write(folder.getRoot().toPath().resolve("rate.properties"), "rate = AlphaTown");
+        try (RateConfigWatcher watcher = new RateConfigWatcher(file, SATURDAY)) {
+            write(file, "rate = DeltaTown");
+            long deadline = System.currentTimeMillis() + 20000;
+            while (watcher.current().calculateTime(50) != 10
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals("Watcher should load the changed rate", 10, watcher.current().calculateTime(50));
+        }
+    }
+
+    /**
+     * A listener that throws should neither keep the rate from the other
+     * listeners nor stop the watcher.
+     * @throws Exception if the file cannot be written
+     */
+    @Test
+    public void watcherShouldSurviveFailingListener() throws Exception {
+        Path file = write(folder.getRoot().toPath().resolve("rate.properties"), "rate = AlphaTown");
+        AtomicBoolean failing = new AtomicBoolean();
+        AtomicReference<RateStrategy> received = new AtomicReference<>();
+        try (RateConfigWatcher watcher = new RateConfigWatcher(file, SATURDAY)) {
+            watcher.addListener(rate -> {
+                if (failing.get()) {
+                    throw new IllegalStateException("listener failed");
+                }
+            });
+            watcher.addListener(received::set);
+            failing.set(true);
+
+            write(file, "rate = DeltaTown");
+            awaitMinutes(received, 10);
+            assertEquals("Other listeners should get the rate", 10,
+                    received.get().calculateTime(50));
+            write(file, "rate = AlphaTown");
+            awaitMinutes(received, 20);
+            assertEquals("Watcher should still be running", 20, received.get().calculateTime(50));
+        }
+    }
+
+    private static void awaitMinutes(AtomicReference<RateStrategy> rate, int minutes)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20000;
+        while (rate.get().calculateTime(50) != minutes
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Testcases for the time-aware rate schedule.
+ */
+package edu.temple.cis.paystation;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RateScheduleTest {
+
+    /*
+     * Clock that stays where the test sets it.
+     */
+    static class SettableClock extends Clock {
+
+        private final ZoneId zone;
+        private long millis;
+
+        SettableClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        void set(String localDateTime) {
+            millis = java.time.LocalDateTime.parse(localDateTime).atZone(zone)
+                    .toInstant().toEpochMilli();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private static final RateStrategy DAY_RATE = new LinearRateStrategy(2);
+    private static final RateStrategy NIGHT_RATE = new LinearRateStrategy(4);
+    private static final RateStrategy FREE = new LinearRateStrategy(0);
+
+    SettableClock clock;
+    RateSchedule schedule;
+
+    @Before
+    public void setup() {
+        clock = new SettableClock(ZoneId.of("America/New_York"));
+        Map<LocalDate, RateStrategy> holidays = new HashMap<>();
+        holidays.put(LocalDate.of(2023, 11, 23), FREE);
+        schedule = new RateSchedule(clock, DAY_RATE, Arrays.asList(
+                new RateSchedule.Band(DayOfWeek.FRIDAY, LocalTime.of(18, 0),
+                        LocalTime.MIDNIGHT, NIGHT_RATE),
+                new RateSchedule.Band(DayOfWeek.SATURDAY, LocalTime.MIDNIGHT,
+                        LocalTime.of(6, 0), NIGHT_RATE)),
+                holidays);
+    }
+
+    /**
+     * The rate should follow the time of day bands.
+     */
+    @Test
+    public void shouldUseTimeOfDayBands() {
+        clock.set("2023-11-17T17:59");
+        assertEquals("Friday afternoon uses the day rate", 20, schedule.calculateTime(50));
+        clock.set("2023-11-17T18:00");
+        assertEquals("Friday evening uses the night rate", 40, schedule.calculateTime(50));
+        clock.set("2023-11-18T05:59");
+        assertEquals("Saturday early morning uses the night rate", 40, schedule.calculateTime(50));
+        clock.set("2023-11-18T06:00");
+        assertEquals("Saturday morning uses the day rate", 20, schedule.calculateTime(50));
+    }
+
+    /**
+     * A holiday rate should apply all day, whatever the bands say.
+     */
+    @Test
+    public void shouldUseHolidayRate() {
+        clock.set("2023-11-23T10:00");
+        assertEquals("Thanksgiving is free", 0, schedule.calculateTime(50));
+        clock.set("2023-11-24T00:00");
+        assertEquals("The day after is not", 20, schedule.calculateTime(50));
+    }
+
+    /**
+     * A station left running past midnight should change rate, which the
+     * old day-of-week captured at startup did not do.
+     */
+    @Test
+    public void shouldChangeRateAtMidnight() {
+        RateSchedule weekend = RateSchedule.weekend(clock, DAY_RATE, FREE);
+        clock.set("2023-11-17T23:59");
+        assertSame(DAY_RATE, weekend.currentRate());
+        clock.set("2023-11-18T00:00");
+        assertSame(FREE, weekend.currentRate());
+        clock.set("2023-11-20T00:00");
+        assertSame(DAY_RATE, weekend.currentRate());
+    }
+
+    /**
+     * Bands should be on local time across a daylight saving change.
+     */
+    @Test
+    public void shouldFollowLocalTimeAcrossDaylightSaving() {
+        RateSchedule evenings = new RateSchedule(clock, DAY_RATE, Collections.singletonList(
+                new RateSchedule.Band(DayOfWeek.SUNDAY, LocalTime.of(18, 0),
+                        LocalTime.MIDNIGHT, NIGHT_RATE)),
+                Collections.<LocalDate, RateStrategy>emptyMap());
+        // Clocks went back on Sunday 5 November 2023 in New York
+        clock.set("2023-11-05T17:59");
+        assertSame(DAY_RATE, evenings.currentRate());
+        clock.set("2023-11-05T18:00");
+        assertSame(NIGHT_RATE, evenings.currentRate());
+    }
+}
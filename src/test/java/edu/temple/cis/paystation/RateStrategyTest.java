@@ -0,0 +1,118 @@
+/*
+ * Testcases for the rate strategies of the Pay Station system.
+ */
+package edu.temple.cis.paystation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RateStrategyTest {
+
+    // Noon UTC on Monday 13 November 2023, and the Sunday and Saturday before
+    private static final Clock MONDAY = at("2023-11-13T12:00:00Z");
+    private static final Clock SUNDAY = at("2023-11-12T12:00:00Z");
+    private static final Clock SATURDAY = at("2023-11-11T12:00:00Z");
+
+    private static Clock at(String instant) {
+        return Clock.fixed(Instant.parse(instant), ZoneOffset.UTC);
+    }
+
+    /**
+     * The progressive rate should follow the first, second and third hour
+     * prices.
+     */
+    @Test
+    public void shouldCalculateProgressiveRate() {
+        RateStrategy rs = new ProgressiveRateStrategy();
+        assertEquals("150 cents should buy 60 min", 60, rs.calculateTime(150));
+        assertEquals("350 cents should buy 120 min", 120, rs.calculateTime(350));
+        assertEquals("155 cents should buy 61 min", 61, rs.calculateTime(155));
+        assertEquals("400 cents should buy 130 min", 130, rs.calculateTime(400));
+    }
+
+    /**
+     * The rates should not overflow for the largest transaction: a linear
+     * rate shows the most minutes an int holds, the progressive rate stays
+     * exact.
+     */
+    @Test
+    public void shouldNotOverflowForLargestAmount() {
+        assertEquals(Integer.MAX_VALUE, new LinearRateStrategy(10).calculateTime(Integer.MAX_VALUE));
+        assertEquals((Integer.MAX_VALUE - 350) / 5 + 120,
+                new ProgressiveRateStrategy().calculateTime(Integer.MAX_VALUE));
+    }
+
+    /**
+     * The precomputed table should give the same answers as the strategy it
+     * was computed from, both inside and beyond the table cap.
+     */
+    @Test
+    public void precomputedShouldMatchWrappedStrategy() {
+        RateStrategy progressive = new ProgressiveRateStrategy();
+        RateStrategy table = new PrecomputedRateStrategy(progressive, 500);
+        for (int amount = 0; amount <= 1000; amount += 5) {
+            assertEquals("Minutes for " + amount + " cents",
+                    progressive.calculateTime(amount), table.calculateTime(amount));
+        }
+    }
+
+    /**
+     * Payments beyond the table should be calculated once and then answered
+     * from the cache, also when amounts share a cache entry.
+     */
+    @Test
+    public void precomputedShouldCacheAmountsBeyondTable() {
+        int[] calls = {0};
+        RateStrategy counted = amount -> {
+            calls[0]++;
+            return amount / 5;
+        };
+        RateStrategy table = new PrecomputedRateStrategy(counted, 0);
+        calls[0] = 0;
+        assertEquals("1000 cents should buy 200 min", 200, table.calculateTime(1000));
+        assertEquals("Cached answer should be the same", 200, table.calculateTime(1000));
+        assertEquals("Strategy should be asked once", 1, calls[0]);
+        // 256 nickels apart, so in the same cache entry
+        assertEquals("Colliding amount should get its own answer", 456, table.calculateTime(2280));
+        assertEquals("Evicted amount should be recalculated", 200, table.calculateTime(1000));
+        assertEquals("Strategy should be asked again after eviction", 3, calls[0]);
+    }
+
+    /**
+     * GammaTown uses the progressive rate on weekdays and the linear rate
+     * on weekends.
+     */
+    @Test
+    public void gammaTownShouldAlternateOnWeekends() {
+        assertEquals("Weekday should use progressive rate", 130,
+                Town.GAMMA_TOWN.rateStrategy(MONDAY).calculateTime(400));
+        assertEquals("Weekend should use linear rate", 160,
+                Town.GAMMA_TOWN.rateStrategy(SUNDAY).calculateTime(400));
+    }
+
+    /**
+     * OmegaTown parking is free on weekends, so no time is sold.
+     */
+    @Test
+    public void omegaTownShouldSellNoTimeOnWeekends() {
+        assertEquals(0, Town.OMEGA_TOWN.rateStrategy(SATURDAY).calculateTime(100));
+        assertEquals(40, Town.OMEGA_TOWN.rateStrategy(MONDAY).calculateTime(100));
+    }
+
+    /**
+     * The rate given to the pay station should be used for every coin, not
+     * only the first one.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void payStationShouldKeepRateAcrossCoins() throws IllegalCoinException {
+        PayStation ps = new PayStationImpl(Town.DELTA_TOWN.rateStrategy());
+        ps.addPayment(25);
+        ps.addPayment(25);
+        assertEquals("DeltaTown should give 1 min per 5 cents", 10, ps.readDisplay());
+        assertEquals(10, ps.buy().value());
+    }
+}
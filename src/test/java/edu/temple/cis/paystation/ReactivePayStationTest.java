@@ -0,0 +1,122 @@
+/*
+ * Testcases for the reactive Pay Station facade.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ReactivePayStationTest {
+
+    /*
+     * Subscriber that asks for one update at a time.
+     */
+    static class OneByOne implements Flow.Subscriber<PayStationUpdate> {
+
+        final List<PayStationUpdate> updates = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(PayStationUpdate update) {
+            updates.add(update);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Every command should give one update, in order, and invalid coins
+     * should be reported as values.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void shouldPublishUpdatePerCommand() throws InterruptedException {
+        ReactivePayStation station = new ReactivePayStation(new PayStationImpl());
+        OneByOne subscriber = new OneByOne();
+        station.subscribe(subscriber);
+        try (SubmissionPublisher<PayStationCommand> coins = new SubmissionPublisher<>()) {
+            coins.subscribe(station);
+            coins.submit(PayStationCommand.coin(25));
+            coins.submit(PayStationCommand.coin(17));
+            coins.submit(PayStationCommand.coin(10));
+            coins.submit(PayStationCommand.BUY);
+            coins.submit(PayStationCommand.coin(5));
+            coins.submit(PayStationCommand.CANCEL);
+        }
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+
+        List<PayStationUpdate> u = subscriber.updates;
+        assertEquals(6, u.size());
+        assertEquals(PayStationUpdate.Type.DISPLAY, u.get(0).getType());
+        assertEquals(10, u.get(0).getDisplay());
+        assertEquals(PayStationUpdate.Type.REJECTED, u.get(1).getType());
+        assertEquals(17, u.get(1).getCoinValue());
+        assertEquals(10, u.get(1).getDisplay());
+        assertEquals(14, u.get(2).getDisplay());
+        assertEquals(PayStationUpdate.Type.RECEIPT, u.get(3).getType());
+        assertEquals(14, u.get(3).getReceipt().value());
+        assertEquals(PayStationUpdate.Type.CANCELLED, u.get(5).getType());
+        assertEquals(Integer.valueOf(1), u.get(5).getCoins().get(5));
+    }
+
+    /**
+     * No more commands should be requested than updates were asked for.
+     */
+    @Test
+    public void shouldPassBackpressureUpstream() {
+        ReactivePayStation station = new ReactivePayStation(new PayStationImpl());
+        long[] requested = new long[1];
+        station.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requested[0] += n;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        assertEquals("Nothing should be requested without a subscriber", 0, requested[0]);
+        station.subscribe(new Flow.Subscriber<PayStationUpdate>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(3);
+            }
+
+            @Override
+            public void onNext(PayStationUpdate item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertEquals("Demand should be passed upstream as is", 3, requested[0]);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Testcases for the receipts of the Pay Station.
+ */
+package edu.temple.cis.paystation;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ReceiptImplTest {
+
+    private static final long ISSUED_AT = 1700000000000L;
+
+    /**
+     * A receipt should give back the values it was issued with.
+     */
+    @Test
+    public void shouldKeepValues() {
+        Receipt r = ReceiptImpl.of(130, ISSUED_AT + 999, 4711);
+        assertEquals(130, r.value());
+        assertEquals("Issue time should be truncated to the second", ISSUED_AT, r.issuedAt());
+        assertEquals(4711, r.stationId());
+    }
+
+    /**
+     * Large values, and issue times outside the compact encoding, should
+     * still be kept.
+     */
+    @Test
+    public void shouldKeepLargeValues() {
+        Receipt r = ReceiptImpl.of(100000, ISSUED_AT, 70000);
+        assertEquals(100000, r.value());
+        assertEquals(70000, r.stationId());
+        assertEquals(ISSUED_AT, r.issuedAt());
+        r = ReceiptImpl.of(-5, -ISSUED_AT, -1);
+        assertEquals(-5, r.value());
+        assertEquals(-1, r.stationId());
+        assertEquals(-ISSUED_AT, r.issuedAt());
+    }
+
+    /**
+     * The old constructor should still make a receipt of the value.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void constructorShouldStillWork() {
+        Receipt r = new ReceiptImpl(75);
+        assertEquals(75, r.value());
+        assertEquals(0, r.stationId());
+        assertEquals(0, r.issuedAt());
+        assertEquals("Any value should be kept", 100000, new ReceiptImpl(100000).value());
+    }
+
+    /**
+     * The pay station should print its ID and the time of the buy on the
+     * receipt.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void payStationShouldStampReceipts() throws IllegalCoinException {
+        PayStation ps = new PayStationImpl(Town.ALPHA_TOWN.rateStrategy(), 12);
+        ps.addPayment(25);
+        long before = System.currentTimeMillis() / 1000 * 1000;
+        Receipt r = ps.buy();
+        assertEquals(10, r.value());
+        assertEquals(12, r.stationId());
+        assertTrue("Receipt should carry the time of the buy",
+                r.issuedAt() >= before && r.issuedAt() <= System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Testcases for the receipt store.
+ */
+package edu.temple.cis.paystation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ReceiptStoreTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long START = 1700000000000L / MINUTE * MINUTE;
+
+    /**
+     * A receipt should be valid from its issue time until it expires.
+     */
+    @Test
+    public void shouldFindValidReceipts() {
+        ReceiptStore store = new ReceiptStore(16);
+        store.add(START, 1, 30);
+        store.add(START + 10 * MINUTE, 2, 60);
+        assertEquals("Nothing should be valid before the first receipt",
+                0, store.validAt(START - 1, null));
+        assertEquals("First receipt should be valid at issue", 1, store.validAt(START, null));
+        assertEquals("Both should be valid after 20 min", 2, store.validAt(START + 20 * MINUTE, null));
+        assertEquals("First should expire after 30 min", 1, store.validAt(START + 30 * MINUTE, null));
+        List<Integer> stations = new ArrayList<>();
+        store.validAt(START + 40 * MINUTE, (issuedAt, expiresAt, stationId, minutes) -> {
+            assertEquals("Expiry should follow from minutes", issuedAt + minutes * MINUTE, expiresAt);
+            stations.add(stationId);
+        });
+        assertEquals("Only the second should be valid after 40 min", List.of(2), stations);
+    }
+
+    /**
+     * Only valid receipts expiring within the period should be found.
+     */
+    @Test
+    public void shouldFindReceiptsExpiringSoon() {
+        ReceiptStore store = new ReceiptStore(16);
+        store.add(START, 1, 10);
+        store.add(START, 2, 20);
+        store.add(START, 3, 120);
+        assertEquals("Two should expire within 20 min", 2, store.expiringWithin(START, 20, null));
+        assertEquals("One should expire within 15 min", 1, store.expiringWithin(START, 15, null));
+        assertEquals("One should expire between 10 and 25 min",
+                1, store.expiringWithin(START + 10 * MINUTE, 15, null));
+    }
+
+    /**
+     * Expired rows should be reclaimed and reused instead of growing the
+     * store.
+     */
+    @Test
+    public void shouldReclaimExpiredRows() {
+        ReceiptStore store = new ReceiptStore(8);
+        for (int i = 0; i < 1000; i++) {
+            store.add(START + i * MINUTE, i, 5);
+        }
+        assertTrue("Store should only keep the unexpired receipts", store.size() <= 6);
+        assertEquals("Expired rows should be reused", 8, store.capacity());
+        assertEquals("Reclaiming later should empty the store",
+                store.size(), store.reclaim(START + 2000 * MINUTE));
+        assertEquals("Nothing should be left", 0, store.size());
+    }
+
+    /**
+     * Queries should agree with a plain search over receipts added out of
+     * order, also when the columns grow.
+     */
+    @Test
+    public void shouldMatchPlainSearch() {
+        ReceiptStore store = new ReceiptStore(4);
+        Random random = new Random(42);
+        int rows = 20000;
+        long[] issued = new long[rows];
+        int[] minutes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            issued[i] = START + random.nextInt(600) * 1000L;
+            minutes[i] = 1 + random.nextInt(300);
+            store.add(issued[i], i, minutes[i]);
+        }
+        for (int query = 0; query < 50; query++) {
+            long time = START + 600 * 1000L + random.nextInt(400) * MINUTE / 3;
+            int window = random.nextInt(100);
+            int valid = 0, expiring = 0;
+            for (int i = 0; i < rows; i++) {
+                long expiry = issued[i] + minutes[i] * MINUTE;
+                if (issued[i] <= time && expiry > time) {
+                    valid++;
+                    if (expiry <= time + window * MINUTE) {
+                        expiring++;
+                    }
+                }
+            }
+            assertEquals("Valid receipts at " + time, valid, store.validAt(time, null));
+            assertEquals("Expiring receipts at " + time,
+                    expiring, store.expiringWithin(time, window, null));
+        }
+    }
+
+    /**
+     * Verify that a station adds its receipts to the store.
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldKeepReceiptsOfStation() throws IllegalCoinException {
+        ReceiptStore store = new ReceiptStore(16);
+        PayStationImpl ps = new PayStationImpl(Town.ALPHA_TOWN.rateStrategy(), 7);
+        ps.setReceiptStore(store);
+        ps.addPayment(25);
+        Receipt receipt = ps.buy();
+        ps.buy();
+        assertEquals("Receipt selling time should be kept", 1, store.size());
+        store.validAt(receipt.issuedAt(), (issuedAt, expiresAt, stationId, minutes) -> {
+            assertEquals("Station should be kept", 7, stationId);
+            assertEquals("Minutes should be kept", 10, minutes);
+        });
+    }
+}
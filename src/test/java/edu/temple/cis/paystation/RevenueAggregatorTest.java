@@ -0,0 +1,120 @@
+/*
+ * Testcases for the fleet revenue aggregation.
+ */
+package edu.temple.cis.paystation;
+
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class RevenueAggregatorTest {
+
+    private static final long HOUR = 3600 * 1000;
+    private static final long START = 1700000000000L / HOUR * HOUR;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The parallel totals should equal the totals added up one by one, also
+     * when the rows are split over many tasks.
+     */
+    @Test
+    public void shouldMatchSequentialTotals() {
+        FleetRecords records = new FleetRecords(5, 10, 25);
+        Random random = new Random(42);
+        Town[] towns = Town.values();
+        long alphaCents = 0, hour3Minutes = 0, station7Cents = 0, betaQuarters = 0;
+        int rows = 3 * RevenueAggregator.THRESHOLD + 17;
+        for (int i = 0; i < rows; i++) {
+            int station = random.nextInt(100);
+            Town town = towns[station % towns.length];
+            long timestamp = START + (long) (random.nextDouble() * 24 * HOUR);
+            int[] coins = {random.nextInt(4), random.nextInt(4), random.nextInt(4)};
+            long cents = coins[0] * 5 + coins[1] * 10 + coins[2] * 25;
+            long minutes = cents / 5 * 2;
+            records.add(timestamp, station, town, cents, minutes, coins);
+            if (town == Town.ALPHA_TOWN) {
+                alphaCents += cents;
+            }
+            if (town == Town.BETA_TOWN) {
+                betaQuarters += coins[2];
+            }
+            if ((timestamp - START) / HOUR == 3) {
+                hour3Minutes += minutes;
+            }
+            if (station == 7) {
+                station7Cents += cents;
+            }
+        }
+
+        RevenueReport report = new RevenueAggregator().aggregate(records);
+        assertEquals(alphaCents, report.cents(Town.ALPHA_TOWN));
+        assertEquals(betaQuarters, report.coins(Town.BETA_TOWN, 25));
+        assertEquals(hour3Minutes, report.minutesInHour(START / HOUR + 3));
+        assertEquals(station7Cents, report.cents(7));
+        assertEquals(24, report.hours());
+    }
+
+    /**
+     * Totals should be kept in longs and not overflow.
+     */
+    @Test
+    public void shouldNotOverflow() {
+        FleetRecords records = new FleetRecords(5, 10, 25);
+        for (int i = 0; i < 3; i++) {
+            records.add(START, 1, Town.DELTA_TOWN, Integer.MAX_VALUE, 1, null);
+        }
+        RevenueReport report = new RevenueAggregator().aggregate(records);
+        assertEquals(3L * Integer.MAX_VALUE, report.totalCents());
+    }
+
+    /**
+     * A few sparse, large station IDs and times years apart should be added
+     * up without arrays the size of the IDs or of the time range.
+     */
+    @Test
+    public void shouldHandleSparseStationsAndHours() {
+        FleetRecords records = new FleetRecords(5, 10, 25);
+        long later = START + 20L * 365 * 24 * HOUR;
+        records.add(START, Integer.MAX_VALUE, Town.ALPHA_TOWN, 25, 10, null);
+        records.add(later, 1_000_000_000, Town.ALPHA_TOWN, 10, 4, null);
+        records.add(later, Integer.MAX_VALUE, Town.ALPHA_TOWN, 5, 2, null);
+        RevenueReport report = new RevenueAggregator().aggregate(records);
+        assertEquals(30, report.cents(Integer.MAX_VALUE));
+        assertEquals(10, report.cents(1_000_000_000));
+        assertEquals(0, report.cents(7));
+        assertEquals("Only hours with sales should be kept", 2, report.hours());
+        assertEquals(START / HOUR, report.firstHour());
+        assertEquals(15, report.centsInHour(later / HOUR));
+        assertEquals(0, report.centsInHour(START / HOUR + 1));
+    }
+
+    /**
+     * Buys recorded in a journal should be added up; cancels should not.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldAggregateJournal() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        FleetRecords records = new FleetRecords(5, 10, 25);
+        try (TransactionJournal journal = new TransactionJournal(dir, 3)) {
+            PayStation ps = new PayStationImpl(Town.BETA_TOWN.rateStrategy(), journal);
+            ps.addPayment(25);
+            ps.buy();
+            ps.addPayment(10);
+            ps.cancel();
+            ps.addPayment(25);
+            ps.addPayment(25);
+            ps.buy();
+            records.addJournal(journal, Town.BETA_TOWN);
+        }
+        RevenueReport report = new RevenueAggregator().aggregate(records);
+        assertEquals(75, report.cents(3));
+        assertEquals(30, report.minutes(Town.BETA_TOWN));
+        assertEquals(0, report.cents(Town.ALPHA_TOWN));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Testcases for the telemetry wire format.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class TelemetryTest {
+
+    private static final long START = 1700000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /*
+     * Collects the records of frames as strings.
+     */
+    private static class Collector implements TelemetryReader.FrameHandler {
+
+        final List<String> lines = new ArrayList<>();
+
+        @Override
+        public void record(long timestamp, int stationId, int type, int cents, int minutes) {
+            lines.add("record " + timestamp + " " + stationId + " " + type + " " + cents + " " + minutes);
+        }
+
+        @Override
+        public void receipt(long issuedAt, int stationId, int minutes) {
+            lines.add("receipt " + issuedAt + " " + stationId + " " + minutes);
+        }
+
+        @Override
+        public void state(long timestamp, int display, StationSnapshot state) {
+            lines.add("state " + timestamp + " " + display + " " + state.getPosition() + " "
+                    + state.getStationId() + " " + state.getInsertedSoFar() + " "
+                    + state.getTotalMoney() + " " + state.getCoins());
+        }
+    }
+
+    /**
+     * Records, receipts and states should come back as written, with and
+     * without compression.
+     * @throws IOException if a frame cannot be read
+     */
+    @Test
+    public void shouldRoundTrip() throws IOException {
+        for (boolean compress : new boolean[]{false, true}) {
+            TelemetryWriter writer = new TelemetryWriter(16, compress);
+            Collector expected = new Collector();
+            Random random = new Random(42);
+            long time = START;
+            for (int i = 0; i < 1000; i++) {
+                time += random.nextInt(5000) - 1000;
+                int station = random.nextInt(3);
+                int type = 1 + random.nextInt(4);
+                int cents = random.nextInt(500);
+                int minutes = random.nextInt(200);
+                writer.record(time, station, type, cents, minutes);
+                expected.record(time, station, type, cents, minutes);
+            }
+            Receipt receipt = ReceiptImpl.of(42, START, 7);
+            writer.receipt(receipt);
+            expected.receipt(receipt.issuedAt(), 7, 42);
+            Map<Integer, Integer> coins = new HashMap<>();
+            coins.put(25, 2);
+            coins.put(5, 1);
+            StationSnapshot state = new StationSnapshot(1234, 7, 55, 1000, coins);
+            writer.state(START + 1, 22, state);
+            expected.state(START + 1, 22, state);
+
+            ByteBuffer frame = ByteBuffer.allocate(64 * 1024);
+            int written = writer.finish(frame);
+            assertEquals("Frame should be written", written, frame.position());
+            assertEquals("Writer should start a new frame", 0, writer.count());
+            frame.flip();
+            Collector actual = new Collector();
+            assertEquals("All records should be read", 1002, new TelemetryReader().read(frame, actual));
+            assertEquals("Records should round trip, compress=" + compress, expected.lines, actual.lines);
+            assertFalse("Whole frame should be read", frame.hasRemaining());
+        }
+    }
+
+    /**
+     * Frames written one after another into a buffer should be read back
+     * one by one, and compressed frames should be smaller.
+     * @throws IOException if a frame cannot be read
+     */
+    @Test
+    public void shouldReadSeveralFrames() throws IOException {
+        ByteBuffer plain = ByteBuffer.allocate(64 * 1024);
+        ByteBuffer packed = ByteBuffer.allocate(64 * 1024);
+        TelemetryWriter plainWriter = new TelemetryWriter(1024, false);
+        TelemetryWriter packedWriter = new TelemetryWriter(1024, true);
+        for (int frame = 0; frame < 3; frame++) {
+            for (int i = 0; i < 500; i++) {
+                plainWriter.record(START + i * 1000, 1, TransactionJournal.COIN, 25, 0);
+                packedWriter.record(START + i * 1000, 1, TransactionJournal.COIN, 25, 0);
+            }
+            plainWriter.finish(plain);
+            packedWriter.finish(packed);
+        }
+        assertTrue("Compressed frames should be smaller", packed.position() < plain.position());
+        plain.flip();
+        TelemetryReader reader = new TelemetryReader();
+        Collector collector = new Collector();
+        for (int frame = 0; frame < 3; frame++) {
+            assertEquals("Frame should hold its records", 500, reader.read(plain, collector));
+        }
+        assertEquals("Every record should be read", 1500, collector.lines.size());
+        assertEquals("Delta should restart in every frame",
+                "record " + START + " 1 4 25 0", collector.lines.get(500));
+    }
+
+    /**
+     * A frame that does not fit should leave the buffer and the frame as
+     * they were.
+     * @throws IOException if a frame cannot be read
+     */
+    @Test
+    public void shouldKeepFrameOnOverflow() throws IOException {
+        TelemetryWriter writer = new TelemetryWriter(64, true);
+        for (int i = 0; i < 100; i++) {
+            writer.record(START + i, i, TransactionJournal.BUY, i, i);
+        }
+        ByteBuffer small = ByteBuffer.allocate(16);
+        try {
+            writer.finish(small);
+            fail("Frame should not fit");
+        } catch (BufferOverflowException e) {
+            assertEquals("Buffer should be left as it was", 0, small.position());
+        }
+        assertEquals("Frame should be kept", 100, writer.count());
+        ByteBuffer large = ByteBuffer.allocate(4096);
+        writer.finish(large);
+        large.flip();
+        assertEquals("Kept frame should be read", 100, new TelemetryReader().read(large, new Collector()));
+    }
+
+    /**
+     * A buffer not holding a frame should be refused.
+     */
+    @Test
+    public void shouldRefuseBadFrame() {
+        TelemetryWriter writer = new TelemetryWriter(64, false);
+        writer.record(START, 1, TransactionJournal.BUY, 25, 10);
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        writer.finish(frame);
+        frame.flip();
+        frame.limit(frame.limit() - 1);
+        try {
+            new TelemetryReader().read(frame, new Collector());
+            fail("Truncated frame should be refused");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            new TelemetryReader().read(ByteBuffer.wrap(new byte[]{1, 2, 3}), new Collector());
+            fail("Bad magic should be refused");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Verify that a station's journal replays into a frame.
+     * @throws IOException if the journal cannot be used
+     * @throws IllegalCoinException if an improper coin is added
+     */
+    @Test
+    public void shouldEncodeJournal() throws IOException, IllegalCoinException {
+        try (TransactionJournal journal = new TransactionJournal(folder.getRoot().toPath(), 3)) {
+            PayStationImpl ps = new PayStationImpl(Town.ALPHA_TOWN.rateStrategy(), journal);
+            ps.addPayment(25);
+            ps.addPayment(10);
+            ps.buy();
+            ps.addPayment(5);
+            TelemetryWriter writer = new TelemetryWriter(256, false);
+            journal.replay(writer);
+            writer.state(START, ps.readDisplay(), ps.state());
+            ByteBuffer frame = ByteBuffer.allocate(256);
+            writer.finish(frame);
+            frame.flip();
+            Collector collector = new Collector();
+            assertEquals("Four events and the state should be sent", 5,
+                    new TelemetryReader().read(frame, collector));
+            assertTrue("State should show the nickel",
+                    collector.lines.get(4).endsWith(" 3 5 35 {5=1}"));
+        }
+    }
+}
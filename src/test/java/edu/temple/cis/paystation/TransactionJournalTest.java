@@ -0,0 +1,269 @@
+/*
+ * Testcases for the transaction journal of the Pay Station.
+ */
+package edu.temple.cis.paystation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class TransactionJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RateStrategy rate = Town.ALPHA_TOWN.rateStrategy();
+
+    /**
+     * Buy, cancel and empty should be recorded in order.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldRecordTransactions() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, 7)) {
+            PayStation ps = new PayStationImpl(rate, journal);
+            ps.addPayment(25);
+            ps.buy();
+            ps.addPayment(10);
+            ps.cancel();
+            ps.empty();
+
+            List<int[]> records = new ArrayList<>();
+            journal.replay((timestamp, stationId, type, cents, minutes) ->
+                    records.add(new int[]{stationId, type, cents, minutes}));
+            assertEquals(5, records.size());
+            assertArrayEquals(new int[]{7, TransactionJournal.COIN, 25, 0}, records.get(0));
+            assertArrayEquals(new int[]{7, TransactionJournal.BUY, 25, 10}, records.get(1));
+            assertArrayEquals(new int[]{7, TransactionJournal.COIN, 10, 0}, records.get(2));
+            assertArrayEquals(new int[]{7, TransactionJournal.CANCEL, 10, 4}, records.get(3));
+            assertArrayEquals(new int[]{7, TransactionJournal.EMPTY, 25, 0}, records.get(4));
+        }
+    }
+
+    /**
+     * A restarted station should also get back the coins of an unfinished
+     * transaction.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldRestoreUnfinishedTransaction() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            PayStation ps = new PayStationImpl(rate, journal);
+            ps.addPayment(25);
+            ps.addPayments(new int[]{10, 5}, 0, 2);
+        }
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            PayStation ps = new PayStationImpl(rate, journal);
+            assertEquals("Display should show the restored coins", 16, ps.readDisplay());
+            assertEquals(3, ps.cancel().size());
+        }
+    }
+
+    /**
+     * A journal with coins the station does not accept, like one of
+     * another currency, should be reported like such a snapshot.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldRefuseJournalWithUnknownCoin() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            journal.append(TransactionJournal.COIN, 200, 0);
+        }
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            new PayStationImpl(rate, journal);
+            fail("A 200 cent coin is not a US coin");
+        } catch (IOException e) {
+            assertEquals("Unknown coin in journal: 200", e.getMessage());
+        }
+    }
+
+    /**
+     * A restarted station should load the snapshot and replay only the
+     * records after it.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldRestoreFromSnapshotAndTail() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        long snapshotPosition;
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            PayStationImpl ps = new PayStationImpl(rate, journal);
+            ps.setSnapshotInterval(4);
+            for (int i = 0; i < 3; i++) {
+                ps.addPayment(25);
+                ps.buy();
+            }
+            ps.addPayment(10);
+            snapshotPosition = StationSnapshot.read(dir.resolve(StationSnapshot.FILE_NAME))
+                    .getPosition();
+            ps.addPayment(5);
+        }
+        assertEquals("Snapshot should be taken after 4 events", 4, snapshotPosition);
+
+        int[] replayed = new int[1];
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            journal.replay(snapshotPosition, (t, id, type, cents, minutes) -> replayed[0]++);
+            PayStation ps = new PayStationImpl(rate, journal);
+            assertEquals("Unfinished transaction should be restored", 6, ps.readDisplay());
+            Map<Integer, Integer> coins = ps.cancel();
+            assertEquals(Integer.valueOf(1), coins.get(10));
+            assertEquals(Integer.valueOf(1), coins.get(5));
+            assertEquals("Money bought should be restored", 75, ps.empty());
+        }
+        assertEquals("Only the tail after the snapshot should be replayed", 4, replayed[0]);
+    }
+
+    /**
+     * A snapshot should hold the fields of the station as written.
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    public void snapshotShouldRoundTrip() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("s.bin");
+        Map<Integer, Integer> coins = new HashMap<>();
+        coins.put(25, 3);
+        coins.put(5, 1);
+        new StationSnapshot(123456789012L, 9, 80, 4000, coins).write(file);
+        StationSnapshot read = StationSnapshot.read(file);
+        assertEquals(123456789012L, read.getPosition());
+        assertEquals(9, read.getStationId());
+        assertEquals(80, read.getInsertedSoFar());
+        assertEquals(4000, read.getTotalMoney());
+        assertEquals(coins, read.getCoins());
+        assertNull(StationSnapshot.read(folder.getRoot().toPath().resolve("none.bin")));
+    }
+
+    /**
+     * A snapshot should hold more money than an int, and snapshots written
+     * with an int should still be read.
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    public void snapshotShouldHoldLongMoney() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("s.bin");
+        new StationSnapshot(1, 9, 0, 5000000000L, new HashMap<>()).write(file);
+        assertEquals(5000000000L, StationSnapshot.read(file).getTotalMoney());
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x50535331);
+            out.writeLong(7);
+            out.writeInt(9);
+            out.writeInt(25);
+            out.writeInt(4000);
+            out.writeInt(1);
+            out.writeInt(25);
+            out.writeInt(1);
+        }
+        StationSnapshot old = StationSnapshot.read(file);
+        assertEquals(7, old.getPosition());
+        assertEquals(4000, old.getTotalMoney());
+        assertEquals(Collections.singletonMap(25, 1), old.getCoins());
+    }
+
+    /**
+     * A restarted station should get back the money collected since the
+     * last empty, also when the journal has rolled over several segments.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldRebuildTotalMoneyOnRestart() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        int segmentSize = 4 * TransactionJournal.RECORD_SIZE;
+        try (TransactionJournal journal = new TransactionJournal(dir, 1, segmentSize, 0)) {
+            PayStation ps = new PayStationImpl(rate, journal);
+            ps.addPayment(5);
+            ps.buy();
+            ps.empty();
+            for (int i = 0; i < 10; i++) {
+                ps.addPayment(25);
+                ps.buy();
+            }
+        }
+        try (TransactionJournal journal = new TransactionJournal(dir, 1, segmentSize, 0)) {
+            PayStation ps = new PayStationImpl(rate, journal);
+            ps.addPayment(10);
+            ps.buy();
+            assertEquals("Money before and after restart should be collected", 260, ps.empty());
+        }
+    }
+
+    /**
+     * Reopening should append after the records already written.
+     * @throws IOException if the journal fails
+     */
+    @Test
+    public void shouldAppendAfterExistingRecords() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            journal.append(TransactionJournal.BUY, 5, 2);
+        }
+        try (TransactionJournal journal = new TransactionJournal(dir, 1)) {
+            journal.append(TransactionJournal.BUY, 10, 4);
+            int[] count = new int[1];
+            journal.replay((timestamp, stationId, type, cents, minutes) -> count[0]++);
+            assertEquals(2, count[0]);
+        }
+    }
+
+    /**
+     * The last records of a station that goes quiet should still be forced
+     * to disk within the force interval.
+     * @throws Exception if the journal fails
+     */
+    @Test
+    public void shouldForceRecordsOfQuietStation() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, 1,
+                TransactionJournal.DEFAULT_SEGMENT_SIZE, 20)) {
+            journal.append(TransactionJournal.COIN, 25, 0);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (journal.getForces() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals("Flusher should force the record without another append",
+                    1, journal.getForces());
+            Thread.sleep(60);
+            assertEquals("Nothing new should not be forced again", 1, journal.getForces());
+        }
+    }
+
+    /**
+     * Many stations should share one flusher thread rather than each
+     * start its own.
+     * @throws IOException if a journal fails
+     */
+    @Test
+    public void shouldShareFlusherThread() throws IOException {
+        List<TransactionJournal> journals = new ArrayList<>();
+        try {
+            for (int id = 1; id <= 50; id++) {
+                journals.add(new TransactionJournal(folder.newFolder().toPath(), id,
+                        TransactionJournal.DEFAULT_SEGMENT_SIZE, 20));
+            }
+            int flushers = 0;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("journal-flusher")) {
+                    flushers++;
+                }
+            }
+            assertEquals(1, flushers);
+        } finally {
+            for (TransactionJournal journal : journals) {
+                journal.close();
+            }
+        }
+    }
+}